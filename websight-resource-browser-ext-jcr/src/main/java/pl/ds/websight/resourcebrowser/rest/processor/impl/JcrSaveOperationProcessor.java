@@ -23,6 +23,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.ConstraintViolationException;
 import javax.jcr.nodetype.NodeTypeDefinition;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -36,6 +37,8 @@ import java.util.Objects;
 public class JcrSaveOperationProcessor implements SaveOperationProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(JcrSaveOperationProcessor.class);
+    private static final String JCR_DATA = "jcr:data";
+    private static final String JCR_LAST_MODIFIED = "jcr:lastModified";
 
     @Override
     public List<AbstractPropertyDto> getProperties(Resource resource) {
@@ -156,18 +159,37 @@ public class JcrSaveOperationProcessor implements SaveOperationProcessor {
         int setPropertiesAmount = 0;
         if (propertiesToSet != null) {
             Node node = Objects.requireNonNull(resource.adaptTo(Node.class));
+            boolean dataChanged = false;
+            boolean lastModifiedSet = false;
             for (SetPropertyOperation propertyAction : propertiesToSet) {
                 String propertyName = propertyAction.getName();
                 if ((node.hasProperty(propertyName) && !node.getProperty(propertyName).getDefinition().isProtected()) ||
                         !node.hasProperty(propertyName)) {
                     addProperty(node, propertyAction);
                     setPropertiesAmount++;
+                    dataChanged |= JCR_DATA.equals(propertyName);
+                    lastModifiedSet |= JCR_LAST_MODIFIED.equals(propertyName);
                 }
             }
+            if (dataChanged && !lastModifiedSet) {
+                updateLastModified(node);
+            }
         }
         return setPropertiesAmount;
     }
 
+    // validators of the content served for download are based on the modification time of binaries
+    private static void updateLastModified(Node node) throws RepositoryException {
+        if (node.hasProperty(JCR_LAST_MODIFIED) && node.getProperty(JCR_LAST_MODIFIED).getDefinition().isProtected()) {
+            return;
+        }
+        try {
+            node.setProperty(JCR_LAST_MODIFIED, Calendar.getInstance());
+        } catch (ConstraintViolationException e) {
+            LOG.debug("Could not update {} of {}", JCR_LAST_MODIFIED, node.getPath(), e);
+        }
+    }
+
     private static void addProperty(Node node, SetPropertyOperation propertyAction) throws RepositoryException {
         boolean isMultiValue = propertyAction.getValues() != null;
         if (isMultiValue) {
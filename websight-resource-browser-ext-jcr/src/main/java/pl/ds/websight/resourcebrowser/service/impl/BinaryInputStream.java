@@ -0,0 +1,78 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import javax.jcr.Binary;
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream of a binary read with {@link Binary#read(byte[], long)}, so that it starts at any position and skips without reading
+ * the skipped bytes. The binary is disposed when the stream is closed.
+ */
+final class BinaryInputStream extends InputStream {
+
+    private final Binary binary;
+    private final long size;
+    private long position;
+    private byte[] buffer = new byte[0];
+
+    BinaryInputStream(Binary binary, long position) throws RepositoryException {
+        this.binary = binary;
+        this.size = binary.getSize();
+        this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        // binary fills the whole array, so a part of an array is read through a buffer
+        byte[] target = offset == 0 && length == bytes.length ? bytes : getBuffer(length);
+        int read;
+        try {
+            read = binary.read(target, position);
+        } catch (RepositoryException e) {
+            throw new IOException("Could not read binary at " + position, e);
+        }
+        if (read <= 0) {
+            return -1;
+        }
+        if (target != bytes) {
+            System.arraycopy(target, 0, bytes, offset, read);
+        }
+        position += read;
+        return read;
+    }
+
+    private byte[] getBuffer(int length) {
+        if (buffer.length != length) {
+            buffer = new byte[length];
+        }
+        return buffer;
+    }
+
+    @Override
+    public long skip(long count) {
+        long skipped = Math.max(0, Math.min(count, size - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, size - position));
+    }
+
+    @Override
+    public void close() {
+        binary.dispose();
+    }
+
+}
@@ -0,0 +1,165 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.system.user.provider.service.SystemUserProvider;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks whether indexes under {@value #INDEXES_PATH} are ready for queries, i.e. they exist and are not being reindexed. The
+ * state of an index is read once and then again only after its definition changes, as reported by observation. When
+ * observation is not available the state is re-read after a short time instead.
+ */
+@Component(service = IndexReadinessTracker.class)
+public class IndexReadinessTracker implements EventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexReadinessTracker.class);
+
+    private static final String INDEXES_PATH = "/oak:index";
+    private static final String REINDEX_PROPERTY_NAME = "reindex";
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED |
+            Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+    private static final long UNOBSERVED_STATE_TTL = TimeUnit.SECONDS.toMillis(10);
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private SystemUserProvider systemUserProvider;
+
+    private ResourceResolver resourceResolver;
+    private boolean observed;
+
+    private final Map<String, IndexState> states = new ConcurrentHashMap<>();
+    private final AtomicLong changesCount = new AtomicLong();
+
+    @Activate
+    protected synchronized void activate() {
+        try {
+            resourceResolver = systemUserProvider.getSystemUserResourceResolver(resourceResolverFactory,
+                    new IndexReaderSystemUserConfig());
+            Session session = resourceResolver.adaptTo(Session.class);
+            if (session != null) {
+                // the index node itself may be added or removed, so its parent is observed
+                session.getWorkspace().getObservationManager()
+                        .addEventListener(this, EVENT_TYPES, INDEXES_PATH, true, null, null, false);
+                observed = true;
+            }
+        } catch (LoginException | RepositoryException e) {
+            LOG.warn("Could not observe indexes, their state will be read periodically", e);
+        }
+    }
+
+    @Deactivate
+    protected synchronized void deactivate() {
+        if (resourceResolver == null) {
+            return;
+        }
+        try {
+            Session session = resourceResolver.adaptTo(Session.class);
+            if (observed && session != null && session.isLive()) {
+                session.getWorkspace().getObservationManager().removeEventListener(this);
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not remove indexes listener", e);
+        } finally {
+            resourceResolver.close();
+            resourceResolver = null;
+            observed = false;
+        }
+    }
+
+    public boolean isReady(String indexName) {
+        IndexState state = states.get(indexName);
+        if (state == null || (!observed && System.currentTimeMillis() - state.readAt > UNOBSERVED_STATE_TTL)) {
+            state = readState(indexName);
+        }
+        return state.ready;
+    }
+
+    private synchronized IndexState readState(String indexName) {
+        String indexPath = INDEXES_PATH + "/" + indexName;
+        long changesBefore = changesCount.get();
+        IndexState state;
+        if (resourceResolver != null) {
+            state = new IndexState(readState(resourceResolver.adaptTo(Session.class), indexPath, true));
+        } else {
+            try (ResourceResolver systemResourceResolver = systemUserProvider.getSystemUserResourceResolver(
+                    resourceResolverFactory, new IndexReaderSystemUserConfig())) {
+                state = new IndexState(readState(systemResourceResolver.adaptTo(Session.class), indexPath, false));
+            } catch (LoginException e) {
+                LOG.warn("Failed to read {} index", indexName, e);
+                state = new IndexState(false);
+            }
+        }
+        // a state read while indexes changed may be outdated already, so it is read again next time
+        if (changesCount.get() == changesBefore) {
+            states.put(indexName, state);
+        }
+        return state;
+    }
+
+    private static boolean readState(Session session, String indexPath, boolean refresh) {
+        try {
+            if (session == null) {
+                return false;
+            }
+            if (refresh) {
+                session.refresh(false);
+            }
+            if (session.nodeExists(indexPath)) {
+                Node indexNode = session.getNode(indexPath);
+                return indexNode.hasProperty(REINDEX_PROPERTY_NAME) && !indexNode.getProperty(REINDEX_PROPERTY_NAME).getBoolean();
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Failed to read {} index", indexPath, e);
+        }
+        return false;
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        changesCount.incrementAndGet();
+        while (events.hasNext()) {
+            try {
+                String path = events.nextEvent().getPath();
+                // the first segment below indexes path is the index name
+                String indexName = StringUtils.substringBefore(StringUtils.substringAfter(path, INDEXES_PATH + "/"), "/");
+                states.remove(indexName);
+            } catch (RepositoryException e) {
+                states.clear();
+                return;
+            }
+        }
+    }
+
+    private static final class IndexState {
+
+        private final boolean ready;
+        private final long readAt = System.currentTimeMillis();
+
+        private IndexState(boolean ready) {
+            this.ready = ready;
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+import pl.ds.websight.resourcebrowser.util.JcrUtil;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Quick search of string property values of {@code nt:unstructured} nodes. Query results are ordered by the relevance computed
+ * by the index and read lazily, so only rows of the requested page are fetched. Every hit carries the properties whose values
+ * contain a term of the phrase.
+ */
+@Component(service = QuickSearchService.class,
+        property = { "provider=" + JcrUtil.JCR_PROVIDER, "mode=" + QuickSearchService.MODE_CONTENT, "observed:Boolean=true" })
+public class JcrContentQuickSearchServiceImpl implements QuickSearchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcrContentQuickSearchServiceImpl.class);
+
+    private static final String INDEX_REFERENCE = "wsContentLucene";
+    private static final String INDEX_REFERENCE_FALLBACK = "lucene";
+    // the node type of the wsContentLucene index rule, so that the index is used for the query
+    private static final String QUERY_PATTERN = "select [jcr:path] from [nt:unstructured] where native('%s', '%s')";
+    private static final String SCOPE_CONDITION_PATTERN = " and isdescendantnode('%s')";
+    private static final String FULL_TEXT_FIELD = "\\:fulltext:";
+    private static final String WARNING_MESSAGE = "Indexing content, results may be incomplete...";
+
+    private static final int MAX_MATCHED_PROPERTIES = 5;
+    private static final int MAX_MATCHED_VALUE_LENGTH = 100;
+
+    @Reference
+    private IndexReadinessTracker indexReadinessTracker;
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase) {
+        return search(resourceResolver, phrase, null);
+    }
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase, String scopePath) {
+        Map<String, Object> data = new HashMap<>();
+        String[] terms = StringUtils.split(StringUtils.defaultString(phrase).toLowerCase(Locale.ROOT));
+        Session session = resourceResolver.adaptTo(Session.class);
+        if (terms.length == 0 || session == null) {
+            return new QuickSearchResults(Collections.emptyIterator(), data);
+        }
+        try {
+            String indexReference = getIndexReference();
+            if (INDEX_REFERENCE_FALLBACK.equals(indexReference)) {
+                data.put("warning", WARNING_MESSAGE);
+            }
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            String queryString = String.format(QUERY_PATTERN, indexReference, createFullTextQuery(terms));
+            if (scopePath != null) {
+                // evaluated by the index, which keeps ancestors of indexed nodes
+                queryString += String.format(SCOPE_CONDITION_PATTERN, scopePath.replace("'", "''"));
+            }
+            RowIterator rows = queryManager.createQuery(queryString, Query.JCR_SQL2).execute().getRows();
+            return new QuickSearchResults(new ContentHits(rows, terms), data);
+        } catch (RepositoryException e) {
+            LOG.warn("Could not find resources", e);
+        }
+        return new QuickSearchResults(Collections.emptyIterator(), data);
+    }
+
+    private String getIndexReference() {
+        return indexReadinessTracker.isReady(INDEX_REFERENCE) ? INDEX_REFERENCE : INDEX_REFERENCE_FALLBACK;
+    }
+
+    // every term is required, the last one is matched as a prefix while it is being typed
+    private static String createFullTextQuery(String[] terms) {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < terms.length; i++) {
+            if (i > 0) {
+                query.append(' ');
+            }
+            query.append('+').append(FULL_TEXT_FIELD);
+            boolean lastTerm = i == terms.length - 1;
+            if (lastTerm && StringUtils.isAlphanumeric(terms[i])) {
+                query.append(terms[i]).append('*');
+            } else {
+                // terms with separators are split by the analyzer, so they are matched as phrases
+                query.append('"').append(JcrUtil.escape(terms[i])).append('"');
+            }
+        }
+        return query.toString();
+    }
+
+    private static Map<String, String> getMatchedProperties(Node node, String[] terms) throws RepositoryException {
+        Map<String, String> matchedProperties = new LinkedHashMap<>();
+        PropertyIterator properties = node.getProperties();
+        while (properties.hasNext() && matchedProperties.size() < MAX_MATCHED_PROPERTIES) {
+            Property property = properties.nextProperty();
+            if (property.getType() == PropertyType.BINARY) {
+                continue;
+            }
+            Value[] values = property.isMultiple() ? property.getValues() : new Value[] { property.getValue() };
+            for (Value value : values) {
+                String matchedValue = getMatchedValue(value.getString(), terms);
+                if (matchedValue != null) {
+                    matchedProperties.put(property.getName(), matchedValue);
+                    break;
+                }
+            }
+        }
+        return matchedProperties;
+    }
+
+    // returns a part of the value around the first matched term
+    private static String getMatchedValue(String value, String[] terms) {
+        for (String term : terms) {
+            int index = StringUtils.indexOfIgnoreCase(value, term);
+            if (index >= 0) {
+                int start = Math.max(0, Math.min(index - MAX_MATCHED_VALUE_LENGTH / 2, value.length() - MAX_MATCHED_VALUE_LENGTH));
+                return StringUtils.abbreviate(value, start, MAX_MATCHED_VALUE_LENGTH);
+            }
+        }
+        return null;
+    }
+
+    private static final class ContentHits implements Iterator<QuickSearchHit> {
+
+        private final RowIterator rows;
+        private final String[] terms;
+
+        private ContentHits(RowIterator rows, String[] terms) {
+            this.rows = rows;
+            this.terms = terms;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public QuickSearchHit next() {
+            if (!rows.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = rows.nextRow();
+            try {
+                return new QuickSearchHit(row.getPath(), row.getScore(), getMatchedProperties(row.getNode(), terms));
+            } catch (RepositoryException e) {
+                throw new IllegalStateException("Could not read search result", e);
+            }
+        }
+
+    }
+
+}
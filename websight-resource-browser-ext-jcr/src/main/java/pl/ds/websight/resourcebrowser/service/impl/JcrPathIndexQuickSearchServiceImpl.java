@@ -0,0 +1,255 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.PathNameIndex;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchScoring;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+import pl.ds.websight.resourcebrowser.util.JcrUtil;
+import pl.ds.websight.system.user.provider.service.SystemUserProvider;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quick search backed by an in-memory {@link PathNameIndex} of all node names. The index is built by a traversal of the
+ * repository when the component is activated and kept current with observation events, which are applied by the same single
+ * thread as the traversal. It is an alternative to {@link JcrQuickSearchServiceImpl} that avoids leading wildcard Lucene
+ * queries, enabled by creating a configuration for this component; its higher service ranking makes it take precedence. The
+ * component fails to activate when the index cannot be built, so that the Lucene search is used instead.
+ */
+@Component(service = QuickSearchService.class, configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = { "provider=" + JcrUtil.JCR_PROVIDER, "observed:Boolean=true", Constants.SERVICE_RANKING + ":Integer=100" })
+public class JcrPathIndexQuickSearchServiceImpl implements QuickSearchService, EventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcrPathIndexQuickSearchServiceImpl.class);
+
+    private static final String WARNING_MESSAGE = "Indexing node paths, results may be incomplete...";
+    private static final String SHORT_TERM_MESSAGE = "Type at least " + PathNameIndex.MIN_TERM_LENGTH
+            + " characters of a name to search the whole repository";
+    private static final List<String> EXCLUDED_PATHS = Arrays.asList("/jcr:system", "/oak:index");
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED;
+    private static final String SOURCE_PATH_INFO = "srcAbsPath";
+    private static final String DESTINATION_PATH_INFO = "destAbsPath";
+
+    private static final int CANDIDATES_LIMIT = 1000;
+
+    private final PathNameIndex index = new PathNameIndex();
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private SystemUserProvider systemUserProvider;
+
+    private ExecutorService executor;
+    private ResourceResolver indexResourceResolver;
+    private Session indexSession;
+    private volatile boolean ready;
+    // the traversal is stopped cooperatively, since an interrupt during a repository read may close its file channels
+    private volatile boolean stopped;
+
+    @Activate
+    protected void activate() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websight-resource-browser-path-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            indexResourceResolver = systemUserProvider.getSystemUserResourceResolver(resourceResolverFactory,
+                    new PathIndexReaderSystemUserConfig());
+            indexSession = indexResourceResolver.adaptTo(Session.class);
+            if (indexSession == null) {
+                throw new IllegalStateException("Could not build path index, JCR session is not available");
+            }
+            // registered before the traversal, so that no change is missed; applying changes twice is harmless
+            indexSession.getWorkspace().getObservationManager()
+                    .addEventListener(this, EVENT_TYPES, "/", true, null, null, false);
+        } catch (LoginException | RepositoryException | RuntimeException e) {
+            executor.shutdown();
+            if (indexResourceResolver != null) {
+                indexResourceResolver.close();
+            }
+            throw new IllegalStateException("Could not build path index", e);
+        }
+        executor.execute(this::build);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        ready = false;
+        stopped = true;
+        try {
+            if (indexSession != null && indexSession.isLive()) {
+                indexSession.getWorkspace().getObservationManager().removeEventListener(this);
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not remove path index listener", e);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.warn("Path index traversal did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (indexResourceResolver != null) {
+            indexResourceResolver.close();
+        }
+        index.clear();
+    }
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase) {
+        return search(resourceResolver, phrase, null);
+    }
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase, String scopePath) {
+        List<String> terms = Arrays.asList(StringUtils.split(StringUtils.defaultString(phrase), QuickSearchScoring.TERM_SEPARATORS));
+        Session session = resourceResolver.adaptTo(Session.class);
+        // access of the searching user is checked only for the hits which are actually read
+        Iterator<QuickSearchHit> hits = index.search(terms, scopePath, CANDIDATES_LIMIT).stream()
+                .filter(path -> isReadable(session, resourceResolver, path))
+                .map(path -> new QuickSearchHit(path, QuickSearchScoring.score(path, phrase)))
+                .iterator();
+        Map<String, Object> data = new HashMap<>();
+        if (!ready) {
+            data.put("warning", WARNING_MESSAGE);
+        } else if (scopePath == null && !terms.isEmpty() && terms.get(terms.size() - 1).length() < PathNameIndex.MIN_TERM_LENGTH) {
+            data.put("warning", SHORT_TERM_MESSAGE);
+        }
+        return new QuickSearchResults(hits, data);
+    }
+
+    private static boolean isReadable(Session session, ResourceResolver resourceResolver, String path) {
+        if (session == null) {
+            return resourceResolver.getResource(path) != null;
+        }
+        try {
+            return session.nodeExists(path);
+        } catch (RepositoryException e) {
+            LOG.debug("Could not check access to {}", path, e);
+        }
+        return false;
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        List<Event> changes = new ArrayList<>();
+        events.forEachRemaining(event -> changes.add((Event) event));
+        executor.execute(() -> apply(changes));
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            addSubtree("/");
+            if (stopped) {
+                return;
+            }
+            ready = true;
+            LOG.info("Path index of {} nodes built in {} ms", index.getSize(), System.currentTimeMillis() - start);
+        } catch (RepositoryException e) {
+            LOG.warn("Could not build path index", e);
+        }
+    }
+
+    private void apply(List<Event> changes) {
+        try {
+            indexSession.refresh(false);
+            for (Event change : changes) {
+                if (stopped) {
+                    return;
+                }
+                apply(change);
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not update path index", e);
+        }
+    }
+
+    private void apply(Event change) throws RepositoryException {
+        String path = change.getPath();
+        switch (change.getType()) {
+            case Event.NODE_ADDED:
+                if (!isExcluded(path)) {
+                    index.add(path);
+                }
+                break;
+            case Event.NODE_REMOVED:
+                index.remove(path);
+                break;
+            case Event.NODE_MOVED:
+                // reordering of children is reported as a move without absolute paths and does not change the index
+                Object sourcePath = change.getInfo().get(SOURCE_PATH_INFO);
+                Object destinationPath = change.getInfo().get(DESTINATION_PATH_INFO);
+                if (sourcePath != null && destinationPath != null) {
+                    index.remove(sourcePath.toString());
+                    addSubtree(destinationPath.toString());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addSubtree(String path) throws RepositoryException {
+        if (isExcluded(path) || !indexSession.nodeExists(path)) {
+            return;
+        }
+        Deque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(indexSession.getNode(path));
+        while (!toVisit.isEmpty() && !stopped) {
+            Node node = toVisit.pop();
+            index.add(node.getPath());
+            NodeIterator children = node.getNodes();
+            while (children.hasNext()) {
+                Node child = children.nextNode();
+                if (!isExcluded(child.getPath())) {
+                    toVisit.push(child);
+                }
+            }
+        }
+    }
+
+    private static boolean isExcluded(String path) {
+        for (String excludedPath : EXCLUDED_PATHS) {
+            if (path.equals(excludedPath) || path.startsWith(excludedPath + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -1,19 +1,17 @@
 package pl.ds.websight.resourcebrowser.service.impl;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
-import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
 import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchScoring;
 import pl.ds.websight.resourcebrowser.api.QuickSearchService;
 import pl.ds.websight.resourcebrowser.util.JcrUtil;
-import pl.ds.websight.system.user.provider.service.SystemUserProvider;
 
-import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Workspace;
@@ -22,52 +20,59 @@ import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
 import javax.jcr.query.RowIterator;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-@Component(service = QuickSearchService.class, property={"provider=" + JcrUtil.JCR_PROVIDER})
+@Component(service = QuickSearchService.class, property={"provider=" + JcrUtil.JCR_PROVIDER, "observed:Boolean=true"})
 public class JcrQuickSearchServiceImpl implements QuickSearchService {
 
     private static final Logger LOG = LoggerFactory.getLogger(JcrQuickSearchServiceImpl.class);
 
     private static final String INDEX_REFERENCE = "wsBasePathLucene";
     private static final String INDEX_REFERENCE_FALLBACK = "lucene";
-    private static final String REINDEX_PROPERTY_NAME = "reindex";
-    private static final String QUERY_PATTERN = "select [jcr:path] from [nt:base] where native('%s', '\\:path:\\/*%s*')";
+    private static final String QUERY_PATTERN =
+            "select [jcr:path] from [nt:base] where native('%s', '\\:path:%s*%s*') order by [jcr:score] desc";
     private static final String WARNING_MESSAGE = "Indexing node paths, results may be incomplete...";
-    private static final String WS_INDEX_PATH= "/oak:index/" + INDEX_REFERENCE;
-
-    private static final int RESULT_LIMIT = 20;
-
-    @Reference
-    private ResourceResolverFactory resourceResolverFactory;
+    private static final int CANDIDATES_LIMIT = 1000;
 
     @Reference
-    private SystemUserProvider systemUserProvider;
+    private IndexReadinessTracker indexReadinessTracker;
 
     @Override
     public QuickSearchResults search(ResourceResolver resourceResolver, String phrase) {
-        String indexReference = null;
-        List<String> resourcePaths = new ArrayList<>();
+        return search(resourceResolver, phrase, null);
+    }
+
+    /**
+     * Scope is pushed down to the query as a fixed prefix of the matched path, so that only paths below it are read from the
+     * index. The best rows by the index relevance are read once the first hit is requested and ranked with
+     * {@link QuickSearchScoring}.
+     */
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase, String scopePath) {
+        Map<String, Object> data = new HashMap<>();
         if (StringUtils.isNotBlank(phrase)) {
             try {
                 Session session = resourceResolver.adaptTo(Session.class);
                 QueryManager queryManager = getQueryManager(session);
                 if (queryManager != null) {
-                    indexReference = getIndexReference();
-                    String queryString = String.format(QUERY_PATTERN, indexReference, sanitizePhrase(phrase));
-
-                    RowIterator rows = executeQuery(queryManager, queryString);
-                    while (rows.hasNext()) {
-                        resourcePaths.add(rows.nextRow().getPath());
+                    String indexReference = getIndexReference();
+                    if (INDEX_REFERENCE_FALLBACK.equals(indexReference)) {
+                        data.put("warning", WARNING_MESSAGE);
                     }
+                    String scopePrefix = JcrUtil.escape(StringUtils.defaultString(scopePath) + "/");
+                    String queryString = String.format(QUERY_PATTERN, indexReference, scopePrefix, sanitizePhrase(phrase));
+                    return new QuickSearchResults(new PathHits(executeQuery(queryManager, queryString), phrase), data);
                 }
             } catch (RepositoryException e) {
                 LOG.warn("Could not find resources", e);
             }
         }
-        return createResults(resourcePaths, indexReference);
+        return new QuickSearchResults(Collections.emptyIterator(), data);
     }
 
     private static QueryManager getQueryManager(Session session) throws RepositoryException {
@@ -80,44 +85,65 @@ public class JcrQuickSearchServiceImpl implements QuickSearchService {
         return null;
     }
 
-    private String getIndexReference() throws RepositoryException {
-        try (ResourceResolver resourceResolver = systemUserProvider.getSystemUserResourceResolver(resourceResolverFactory,
-                new IndexReaderSystemUserConfig())) {
-            Session session = resourceResolver.adaptTo(Session.class);
-            if (session != null && session.nodeExists(WS_INDEX_PATH)) {
-                Node wsIndexNode = session.getNode(WS_INDEX_PATH);
-                if (wsIndexNode.hasProperty(REINDEX_PROPERTY_NAME)) {
-                    boolean isIndexing = wsIndexNode.getProperty(REINDEX_PROPERTY_NAME).getBoolean();
-                    if (!isIndexing) {
-                        return INDEX_REFERENCE;
-                    }
-                }
-            }
-        } catch (LoginException e) {
-            LOG.warn("Failed to read {} index", INDEX_REFERENCE, e);
-        }
-        return INDEX_REFERENCE_FALLBACK;
+    private String getIndexReference() {
+        return indexReadinessTracker.isReady(INDEX_REFERENCE) ? INDEX_REFERENCE : INDEX_REFERENCE_FALLBACK;
     }
 
     private String sanitizePhrase(String phrase) {
-        phrase = StringUtils.removeStart(phrase, "/"); // Added in QUERY_PATTERN
+        phrase = StringUtils.removeStart(phrase, "/"); // Added with scope prefix
         String escapedPhrase = JcrUtil.escape(phrase).replace(" ", "*");
         return escapedPhrase.replaceAll("\\\\/", "*\\\\/*");
     }
 
     private RowIterator executeQuery(QueryManager queryManager, String queryString) throws RepositoryException {
         Query query = queryManager.createQuery(queryString, Query.JCR_SQL2);
-        query.setLimit(RESULT_LIMIT);
+        query.setLimit(CANDIDATES_LIMIT);
         QueryResult queryResult = query.execute();
         return queryResult.getRows();
     }
 
-    private QuickSearchResults createResults(List<String> paths, String usedIndex) {
-        Map<String, Object> data = new HashMap<>();
-        if (StringUtils.equals(usedIndex, INDEX_REFERENCE_FALLBACK)) {
-            data.put("warning", WARNING_MESSAGE);
+    /**
+     * Hits of query rows, scored with {@link QuickSearchScoring} so that they can be merged with hits of other providers. Rows
+     * are read and sorted by the score when the first hit is requested.
+     */
+    private static final class PathHits implements Iterator<QuickSearchHit> {
+
+        private final RowIterator rows;
+        private final String phrase;
+        private Iterator<QuickSearchHit> hits;
+
+        private PathHits(RowIterator rows, String phrase) {
+            this.rows = rows;
+            this.phrase = phrase;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return getHits().hasNext();
         }
-        return new QuickSearchResults(paths, data);
+
+        @Override
+        public QuickSearchHit next() {
+            return getHits().next();
+        }
+
+        private Iterator<QuickSearchHit> getHits() {
+            if (hits == null) {
+                List<QuickSearchHit> scoredHits = new ArrayList<>();
+                try {
+                    while (rows.hasNext()) {
+                        String path = rows.nextRow().getPath();
+                        scoredHits.add(new QuickSearchHit(path, QuickSearchScoring.score(path, phrase)));
+                    }
+                } catch (RepositoryException e) {
+                    throw new IllegalStateException("Could not read search result", e);
+                }
+                scoredHits.sort(Comparator.comparingDouble(QuickSearchHit::getScore).reversed());
+                hits = scoredHits.iterator();
+            }
+            return hits;
+        }
+
     }
 
 }
@@ -13,6 +13,7 @@ import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
+import java.io.IOException;
 import java.io.InputStream;
 
 @Component(service = ResourceContentProvider.class, property = { "provider=" + JcrUtil.JCR_PROVIDER })
@@ -21,6 +22,7 @@ public class JcrResourceContentProvider implements ResourceContentProvider {
     private static final Logger LOG = LoggerFactory.getLogger(JcrResourceContentProvider.class);
     private static final String JCR_DATA = "jcr:data";
     private static final String JCR_CONTENT = "jcr:content";
+    private static final String JCR_LAST_MODIFIED = "jcr:lastModified";
     private static final String DEFAULT_JCR_RESOURCE_MIME_TYPE = "application/octet-stream";
 
     @Reference
@@ -28,25 +30,95 @@ public class JcrResourceContentProvider implements ResourceContentProvider {
 
     @Override
     public InputStream getContent(Resource resource) {
+        try {
+            Property jcrDataProperty = getDataProperty(resource);
+            if (jcrDataProperty != null) {
+                return jcrDataProperty.getBinary().getStream();
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not get {} Node content", resource.getPath(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public InputStream getContent(Resource resource, long offset) throws IOException {
+        try {
+            Property jcrDataProperty = getDataProperty(resource);
+            if (jcrDataProperty != null) {
+                return new BinaryInputStream(jcrDataProperty.getBinary(), offset);
+            }
+        } catch (RepositoryException e) {
+            throw new IOException("Could not get " + resource.getPath() + " Node content", e);
+        }
+        return null;
+    }
+
+    @Override
+    public long getContentLength(Resource resource) {
+        try {
+            Property jcrDataProperty = getDataProperty(resource);
+            if (jcrDataProperty != null) {
+                return jcrDataProperty.getLength();
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not get {} Node content length", resource.getPath(), e);
+        }
+        return -1;
+    }
+
+    private static Property getDataProperty(Resource resource) throws RepositoryException {
         Node node = resource.adaptTo(Node.class);
         if (node != null) {
-            try {
-                if (!node.hasProperty(JCR_DATA) && node.hasNode(JCR_CONTENT)) {
-                    node = node.getNode(JCR_CONTENT);
-                }
-                if (node.hasProperty(JCR_DATA)) {
-                    Property jcrDataProperty = node.getProperty(JCR_DATA);
-                    if (jcrDataProperty.getType() == PropertyType.BINARY) {
-                        return jcrDataProperty.getBinary().getStream();
-                    }
+            if (!node.hasProperty(JCR_DATA) && node.hasNode(JCR_CONTENT)) {
+                node = node.getNode(JCR_CONTENT);
+            }
+            if (node.hasProperty(JCR_DATA)) {
+                Property jcrDataProperty = node.getProperty(JCR_DATA);
+                if (jcrDataProperty.getType() == PropertyType.BINARY) {
+                    return jcrDataProperty;
                 }
-            } catch (RepositoryException e) {
-                LOG.warn("Could not get {} Node content", resource.getPath(), e);
             }
         }
         return null;
     }
 
+    // writers of binaries, including the save operation of the browser, update the last modification time of their node;
+    // length tells apart changes made in the same ms
+    @Override
+    public String getETag(Resource resource) {
+        try {
+            Property jcrDataProperty = getDataProperty(resource);
+            long lastModified = getLastModified(jcrDataProperty);
+            if (lastModified >= 0) {
+                return Long.toHexString(lastModified) + '-' + Long.toHexString(jcrDataProperty.getLength());
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not get {} Node content validator", resource.getPath(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public long getLastModified(Resource resource) {
+        try {
+            return getLastModified(getDataProperty(resource));
+        } catch (RepositoryException e) {
+            LOG.warn("Could not get {} Node content modification time", resource.getPath(), e);
+        }
+        return -1;
+    }
+
+    private static long getLastModified(Property jcrDataProperty) throws RepositoryException {
+        if (jcrDataProperty != null) {
+            Node node = jcrDataProperty.getParent();
+            if (node.hasProperty(JCR_LAST_MODIFIED)) {
+                return node.getProperty(JCR_LAST_MODIFIED).getDate().getTimeInMillis();
+            }
+        }
+        return -1;
+    }
+
     @Override
     public String getSourcePath(Resource resource) {
         Node node = resource.adaptTo(Node.class);
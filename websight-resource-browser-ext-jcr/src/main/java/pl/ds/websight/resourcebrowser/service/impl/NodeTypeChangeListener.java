@@ -0,0 +1,86 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.resourceprovider.NodeTypeCapabilityCache;
+import pl.ds.websight.system.user.provider.service.SystemUserProvider;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+/**
+ * Clears {@link NodeTypeCapabilityCache} whenever node types are registered, changed or unregistered.
+ */
+@Component(service = {}, immediate = true)
+public class NodeTypeChangeListener implements EventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeTypeChangeListener.class);
+
+    static final String NODE_TYPES_PATH = "/jcr:system/jcr:nodeTypes";
+
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED |
+            Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private SystemUserProvider systemUserProvider;
+
+    @Reference
+    private NodeTypeCapabilityCache nodeTypeCapabilityCache;
+
+    private ResourceResolver resourceResolver;
+
+    @Activate
+    private void activate() {
+        try {
+            resourceResolver = systemUserProvider.getSystemUserResourceResolver(resourceResolverFactory,
+                    new NodeTypeReaderSystemUserConfig());
+            Session session = resourceResolver.adaptTo(Session.class);
+            if (session != null) {
+                session.getWorkspace().getObservationManager()
+                        .addEventListener(this, EVENT_TYPES, NODE_TYPES_PATH, true, null, null, false);
+            }
+        } catch (LoginException | RepositoryException e) {
+            LOG.warn("Could not observe node type changes, node type capabilities will not be refreshed", e);
+        }
+    }
+
+    @Deactivate
+    private void deactivate() {
+        if (resourceResolver == null) {
+            return;
+        }
+        try {
+            Session session = resourceResolver.adaptTo(Session.class);
+            if (session != null && session.isLive()) {
+                ObservationManager observationManager = session.getWorkspace().getObservationManager();
+                observationManager.removeEventListener(this);
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Could not remove node type change listener", e);
+        } finally {
+            resourceResolver.close();
+            resourceResolver = null;
+        }
+        nodeTypeCapabilityCache.invalidate();
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        nodeTypeCapabilityCache.invalidate();
+    }
+
+}
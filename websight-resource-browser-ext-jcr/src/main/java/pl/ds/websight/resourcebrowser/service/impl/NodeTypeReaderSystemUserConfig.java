@@ -0,0 +1,27 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import pl.ds.websight.system.user.provider.service.SystemUserConfig;
+
+import javax.jcr.security.Privilege;
+import java.util.HashMap;
+import java.util.Map;
+
+public class NodeTypeReaderSystemUserConfig implements SystemUserConfig {
+
+    private static final Map<String, String[]> privileges = new HashMap<>();
+
+    static {
+        privileges.put(NodeTypeChangeListener.NODE_TYPES_PATH, new String[] { Privilege.JCR_READ });
+    }
+
+    @Override
+    public String getSystemUserId() {
+        return "websight-node-type-reader";
+    }
+
+    @Override
+    public Map<String, String[]> getPrivileges() {
+        return privileges;
+    }
+
+}
@@ -0,0 +1,27 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import pl.ds.websight.system.user.provider.service.SystemUserConfig;
+
+import javax.jcr.security.Privilege;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PathIndexReaderSystemUserConfig implements SystemUserConfig {
+
+    private static final Map<String, String[]> privileges = new HashMap<>();
+
+    static {
+        privileges.put("/", new String[] { Privilege.JCR_READ });
+    }
+
+    @Override
+    public String getSystemUserId() {
+        return "websight-path-index-reader";
+    }
+
+    @Override
+    public Map<String, String[]> getPrivileges() {
+        return privileges;
+    }
+
+}
@@ -0,0 +1,426 @@
+package pl.ds.websight.resourcebrowser.api;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of node names. Nodes are kept as a tree of (parent, name) entries with shared name strings; children of
+ * every node are held in an array of ids sorted by name, so a child is found by a binary search without any per node objects.
+ * Every name is indexed by its lower-cased trigrams. Posting lists hold node ids as delta encoded variable-length integers; ids
+ * are assigned in insertion order, so appending keeps them sorted. Removed nodes are only marked and dropped by compaction.
+ * Shared by quick search services which keep paths in memory; it is safe for use by concurrent threads.
+ */
+public final class PathNameIndex {
+
+    public static final int MIN_TERM_LENGTH = 3;
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_REMOVED_TO_COMPACT = 10_000;
+    // names shorter than trigrams are matched by a scan of the scope, which is bounded
+    private static final int MAX_SCANNED_NODES = 100_000;
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private static final Comparator<Match> RELEVANCE = Comparator.<Match>comparingInt(match -> match.rank)
+            .thenComparingInt(match -> match.depth)
+            .thenComparingInt(match -> match.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] parents;
+    private String[] names;
+    // ids of children sorted by name, followed by unused slots
+    private int[][] children;
+    private int[] childrenCounts;
+    private int size;
+    private BitSet removed;
+    private int removedCount;
+    private Map<String, String> namePool;
+    private Map<Long, Postings> postings;
+
+    public PathNameIndex() {
+        reset(INITIAL_CAPACITY);
+    }
+
+    private void reset(int capacity) {
+        parents = new int[capacity];
+        names = new String[capacity];
+        children = new int[capacity][];
+        childrenCounts = new int[capacity];
+        removed = new BitSet();
+        removedCount = 0;
+        namePool = new HashMap<>();
+        postings = new HashMap<>();
+        parents[ROOT] = NONE;
+        names[ROOT] = "";
+        size = 1;
+    }
+
+    /**
+     * Adds the path together with its ancestors.
+     */
+    public void add(String path) {
+        lock.writeLock().lock();
+        try {
+            int id = ROOT;
+            for (String name : StringUtils.split(path, '/')) {
+                int index = findChild(id, name);
+                id = index >= 0 ? children[id][index] : create(id, name, -index - 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the path together with its descendants.
+     */
+    public void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            int id = find(path);
+            if (id > ROOT) {
+                removeSubtree(id);
+                if (removedCount > MIN_REMOVED_TO_COMPACT && removedCount > size / 2) {
+                    compact();
+                }
+            } else if (id == ROOT) {
+                reset(INITIAL_CAPACITY);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset(INITIAL_CAPACITY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return size - 1 - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds paths of nodes whose name contains the last term while the preceding terms are contained, in order, by names of
+     * their ancestors. Only descendants of the scope node are searched, all nodes when scope path is {@code null}. Results are
+     * ordered by exact name match first, then name prefix match, then depth and insertion order. Names shorter than
+     * {@link #MIN_TERM_LENGTH} are searched only within a scope, and only among its first descendants.
+     */
+    public List<String> search(List<String> terms, String scopePath, int limit) {
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (scopePath == null && terms.get(terms.size() - 1).length() < MIN_TERM_LENGTH) {
+            return Collections.emptyList();
+        }
+        List<String> lowerCaseTerms = new ArrayList<>(terms.size());
+        terms.forEach(term -> lowerCaseTerms.add(term.toLowerCase(Locale.ROOT)));
+        String nameTerm = lowerCaseTerms.get(lowerCaseTerms.size() - 1);
+        lock.readLock().lock();
+        try {
+            int scope = scopePath != null ? find(scopePath) : ROOT;
+            if (scope == NONE || removed.get(scope)) {
+                return Collections.emptyList();
+            }
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RELEVANCE.reversed());
+            int[] candidates = getCandidates(nameTerm);
+            if (candidates == null) {
+                candidates = getDescendants(scope, MAX_SCANNED_NODES);
+            }
+            for (int id : candidates) {
+                Match match = match(id, scope, lowerCaseTerms);
+                if (match != null) {
+                    best.offer(match);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort(RELEVANCE);
+            List<String> paths = new ArrayList<>(matches.size());
+            matches.forEach(match -> paths.add(getPath(match.id)));
+            return paths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // returns null when the scope has to be scanned, because the term is too short to use trigrams
+    private int[] getCandidates(String nameTerm) {
+        if (nameTerm.length() < MIN_TERM_LENGTH) {
+            return null;
+        }
+        Postings smallest = null;
+        for (int i = 0; i + 3 <= nameTerm.length(); i++) {
+            Postings trigramPostings = postings.get(trigram(nameTerm, i));
+            if (trigramPostings == null) {
+                return new int[0];
+            }
+            if (smallest == null || trigramPostings.count < smallest.count) {
+                smallest = trigramPostings;
+            }
+        }
+        return smallest.toArray();
+    }
+
+    // descendants in breadth-first order, so that the shallowest ones are kept when there are more than the limit
+    private int[] getDescendants(int id, int limit) {
+        int[] descendants = new int[Math.min(limit, INITIAL_CAPACITY)];
+        int count = 0;
+        int visited = -1;
+        int current = id;
+        while (count < limit) {
+            int[] currentChildren = getChildren(current);
+            for (int i = 0; i < childrenCounts[current] && count < limit; i++) {
+                if (count == descendants.length) {
+                    descendants = Arrays.copyOf(descendants, Math.min(limit, count * 2));
+                }
+                descendants[count++] = currentChildren[i];
+            }
+            if (++visited >= count) {
+                break;
+            }
+            current = descendants[visited];
+        }
+        return Arrays.copyOf(descendants, count);
+    }
+
+    private int[] getChildren(int id) {
+        return children[id] != null ? children[id] : NO_CHILDREN;
+    }
+
+    // returns index of the child within children of the parent, or (-(insertion index) - 1) when there is no such child
+    private int findChild(int parent, String name) {
+        int[] parentChildren = getChildren(parent);
+        int low = 0;
+        int high = childrenCounts[parent] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = names[parentChildren[middle]].compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Match match(int id, int scope, List<String> terms) {
+        if (id == ROOT || id == scope || removed.get(id)) {
+            return null;
+        }
+        String name = names[id];
+        String nameTerm = terms.get(terms.size() - 1);
+        if (!StringUtils.containsIgnoreCase(name, nameTerm)) {
+            return null;
+        }
+        int term = terms.size() - 2;
+        int depth = 1;
+        boolean inScope = scope == ROOT;
+        for (int ancestor = parents[id]; ancestor > ROOT; ancestor = parents[ancestor]) {
+            if (term >= 0 && StringUtils.containsIgnoreCase(names[ancestor], terms.get(term))) {
+                term--;
+            }
+            inScope |= ancestor == scope;
+            depth++;
+        }
+        if (term >= 0 || !inScope) {
+            return null;
+        }
+        int rank = name.equalsIgnoreCase(nameTerm) ? 0 : (StringUtils.startsWithIgnoreCase(name, nameTerm) ? 1 : 2);
+        return new Match(id, rank, depth);
+    }
+
+    private int create(int parent, String name, int index) {
+        ensureCapacity(size + 1);
+        int id = size++;
+        String pooledName = namePool.computeIfAbsent(name, key -> key);
+        parents[id] = parent;
+        names[id] = pooledName;
+        insertChild(parent, index, id);
+        String lowerCaseName = pooledName.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= lowerCaseName.length(); i++) {
+            postings.computeIfAbsent(trigram(lowerCaseName, i), key -> new Postings()).add(id);
+        }
+        return id;
+    }
+
+    private void insertChild(int parent, int index, int id) {
+        int count = childrenCounts[parent];
+        int[] parentChildren = getChildren(parent);
+        if (count == parentChildren.length) {
+            parentChildren = Arrays.copyOf(parentChildren, Math.max(2, count + (count >> 1)));
+            children[parent] = parentChildren;
+        }
+        System.arraycopy(parentChildren, index, parentChildren, index + 1, count - index);
+        parentChildren[index] = id;
+        childrenCounts[parent] = count + 1;
+    }
+
+    private int find(String path) {
+        int id = ROOT;
+        for (String name : StringUtils.split(path, '/')) {
+            int index = findChild(id, name);
+            if (index < 0) {
+                return NONE;
+            }
+            id = children[id][index];
+        }
+        return id;
+    }
+
+    // the subtree is detached from its parent; its nodes are only marked, so that posting lists need no update
+    private void removeSubtree(int id) {
+        int parent = parents[id];
+        int index = findChild(parent, names[id]);
+        if (index >= 0) {
+            int[] parentChildren = children[parent];
+            System.arraycopy(parentChildren, index + 1, parentChildren, index, childrenCounts[parent] - index - 1);
+            childrenCounts[parent]--;
+        }
+        Deque<Integer> toRemove = new ArrayDeque<>();
+        toRemove.push(id);
+        while (!toRemove.isEmpty()) {
+            int current = toRemove.pop();
+            if (removed.get(current)) {
+                continue;
+            }
+            removed.set(current);
+            removedCount++;
+            int[] currentChildren = getChildren(current);
+            for (int i = 0; i < childrenCounts[current]; i++) {
+                toRemove.push(currentChildren[i]);
+            }
+            children[current] = null;
+            childrenCounts[current] = 0;
+        }
+    }
+
+    // parents are always created before their children, so ids can be remapped in a single ordered pass
+    private void compact() {
+        int[] oldParents = parents;
+        String[] oldNames = names;
+        BitSet oldRemoved = removed;
+        int oldSize = size;
+        int[] remapped = new int[oldSize];
+        reset(Math.max(INITIAL_CAPACITY, oldSize - removedCount));
+        for (int id = ROOT + 1; id < oldSize; id++) {
+            if (!oldRemoved.get(id)) {
+                int parent = remapped[oldParents[id]];
+                remapped[id] = create(parent, oldNames[id], -findChild(parent, oldNames[id]) - 1);
+            }
+        }
+    }
+
+    private String getPath(int id) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (int current = id; current > ROOT; current = parents[current]) {
+            segments.push(names[current]);
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > parents.length) {
+            int newCapacity = Math.max(capacity, parents.length + (parents.length >> 1));
+            parents = Arrays.copyOf(parents, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            children = Arrays.copyOf(children, newCapacity);
+            childrenCounts = Arrays.copyOf(childrenCounts, newCapacity);
+        }
+    }
+
+    private static long trigram(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    private static final class Postings {
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int lastId;
+
+        private void add(int id) {
+            if (count > 0 && id == lastId) {
+                // trigram repeated within a single name
+                return;
+            }
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 5, data.length * 2));
+            }
+            int delta = id - lastId;
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            lastId = id;
+            count++;
+        }
+
+        private int[] toArray() {
+            int[] ids = new int[count];
+            int position = 0;
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = data[position++];
+                    delta |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while ((current & 0x80) != 0);
+                id += delta;
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+    }
+
+    private static final class Match {
+
+        private final int id;
+        private final int rank;
+        private final int depth;
+
+        private Match(int id, int rank, int depth) {
+            this.id = id;
+            this.rank = rank;
+            this.depth = depth;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package pl.ds.websight.resourcebrowser.api;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class QuickSearchHit {
+
+    private final String path;
+    private final double score;
+    private final Map<String, String> matchedProperties;
+
+    public QuickSearchHit(String path, double score) {
+        this(path, score, Collections.emptyMap());
+    }
+
+    public QuickSearchHit(String path, double score, Map<String, String> matchedProperties) {
+        this.path = path;
+        this.score = score;
+        this.matchedProperties = matchedProperties;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Relevance of the hit, higher is better. See {@link QuickSearchScoring}.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Names of properties whose values matched the phrase, mapped to the matching values.
+     */
+    public Map<String, String> getMatchedProperties() {
+        return matchedProperties;
+    }
+
+}
@@ -1,19 +1,48 @@
 package pl.ds.websight.resourcebrowser.api;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class QuickSearchResults {
 
-    private final List<String> paths;
+    private final Iterator<QuickSearchHit> hits;
     private final Map<String, Object> data;
+    private List<String> paths;
 
+    /**
+     * Creates results of unscored paths, which are kept in the given order.
+     */
     public QuickSearchResults(List<String> paths, Map<String, Object> data) {
         this.paths = paths;
+        this.hits = paths.stream()
+                .map(path -> new QuickSearchHit(path, 0))
+                .iterator();
         this.data = data;
     }
 
+    /**
+     * Creates results of hits which are computed lazily, ordered from the highest score.
+     */
+    public QuickSearchResults(Iterator<QuickSearchHit> hits, Map<String, Object> data) {
+        this.hits = hits;
+        this.data = data;
+    }
+
+    public Iterator<QuickSearchHit> getHits() {
+        return hits;
+    }
+
+    /**
+     * @deprecated reads all remaining hits, use {@link #getHits()} instead
+     */
+    @Deprecated
     public List<String> getPaths() {
+        if (paths == null) {
+            paths = new ArrayList<>();
+            hits.forEachRemaining(hit -> paths.add(hit.getPath()));
+        }
         return paths;
     }
 
@@ -0,0 +1,40 @@
+package pl.ds.websight.resourcebrowser.api;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Common relevance score of quick search hits, so that hits of different providers can be merged. The last term of the phrase
+ * is compared with the resource name: exact name match scores highest, then name prefix, then any other occurrence in the
+ * name. Within each of these, shallower resources score higher.
+ */
+public final class QuickSearchScoring {
+
+    public static final String TERM_SEPARATORS = " /";
+
+    private static final double EXACT_NAME_MATCH = 3;
+    private static final double NAME_PREFIX_MATCH = 2;
+    private static final double NAME_MATCH = 1;
+
+    private QuickSearchScoring() {
+        // no instances
+    }
+
+    public static double score(String path, String phrase) {
+        String[] terms = StringUtils.split(phrase, TERM_SEPARATORS);
+        String name = StringUtils.substringAfterLast(path, "/");
+        double nameMatch = 0;
+        if (terms != null && terms.length > 0) {
+            String nameTerm = terms[terms.length - 1];
+            if (name.equalsIgnoreCase(nameTerm)) {
+                nameMatch = EXACT_NAME_MATCH;
+            } else if (StringUtils.startsWithIgnoreCase(name, nameTerm)) {
+                nameMatch = NAME_PREFIX_MATCH;
+            } else if (StringUtils.containsIgnoreCase(name, nameTerm)) {
+                nameMatch = NAME_MATCH;
+            }
+        }
+        int depth = StringUtils.countMatches(path, '/');
+        return nameMatch + 1.0 / (1 + depth);
+    }
+
+}
@@ -1,9 +1,44 @@
 package pl.ds.websight.resourcebrowser.api;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.Iterator;
+import java.util.stream.StreamSupport;
+
+/**
+ * Searches resources of a provider. Services are registered with the {@code provider} property and optionally with the
+ * {@code mode} property, which defaults to {@link #MODE_PATH}.
+ */
 public interface QuickSearchService {
 
+    /**
+     * Phrase is matched against resource paths and names.
+     */
+    String MODE_PATH = "path";
+
+    /**
+     * Phrase is matched against property values and full text of resources.
+     */
+    String MODE_CONTENT = "content";
+
     QuickSearchResults search(ResourceResolver resourceResolver, String phrase);
 
+    /**
+     * Searches only resources below the given scope path, or all resources when it is {@code null}. Implementations should
+     * restrict the search itself, by default hits of the whole search are filtered.
+     */
+    default QuickSearchResults search(ResourceResolver resourceResolver, String phrase, String scopePath) {
+        QuickSearchResults results = search(resourceResolver, phrase);
+        if (scopePath == null) {
+            return results;
+        }
+        String scopePrefix = StringUtils.appendIfMissing(scopePath, "/");
+        Iterable<QuickSearchHit> hits = results::getHits;
+        Iterator<QuickSearchHit> scopedHits = StreamSupport.stream(hits.spliterator(), false)
+                .filter(hit -> hit.getPath().startsWith(scopePrefix))
+                .iterator();
+        return new QuickSearchResults(scopedHits, results.getData());
+    }
+
 }
@@ -2,16 +2,78 @@ package pl.ds.websight.resourcebrowser.api;
 
 import org.apache.sling.api.resource.Resource;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 public interface ResourceContentProvider {
 
     InputStream getContent(Resource resource);
 
+    /**
+     * Returns content of the resource starting at the given byte offset. By default the beginning of the content is skipped, so
+     * providers of seekable content should rather start reading at the offset.
+     */
+    default InputStream getContent(Resource resource, long offset) throws IOException {
+        InputStream content = getContent(resource);
+        if (content == null) {
+            return null;
+        }
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                long skipped = content.skip(remaining);
+                if (skipped <= 0) {
+                    if (content.read() < 0) {
+                        throw new EOFException("Content ends before offset " + offset);
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+        } catch (IOException e) {
+            content.close();
+            throw e;
+        }
+        return content;
+    }
+
+    /**
+     * Returns local file holding the resource content, or {@code null} when the content is not stored in such a file. Content of
+     * a file is read directly from the file instead of the stream returned by {@link #getContent(Resource)}, and its length is
+     * the length of the file.
+     */
+    default Path getContentFile(Resource resource) {
+        return null;
+    }
+
+    /**
+     * Returns length of the resource content in bytes, or {@code -1} when it is not known.
+     */
+    default long getContentLength(Resource resource) {
+        return -1;
+    }
+
     String getSourcePath(Resource resource);
 
     String getMimeType(Resource resource);
 
     boolean hasContent(Resource resource);
 
+    /**
+     * Returns an opaque strong validator of the resource content, which changes whenever the content changes, or {@code null}
+     * when the content cannot be validated.
+     */
+    default String getETag(Resource resource) {
+        return null;
+    }
+
+    /**
+     * Returns time of the last modification of the resource content in milliseconds, or {@code -1} when it is not known.
+     */
+    default long getLastModified(Resource resource) {
+        return -1;
+    }
+
 }
@@ -1,4 +1,4 @@
-@Version("1.0.0")
+@Version("1.5.0")
 package pl.ds.websight.resourcebrowser.api;
 
 import org.osgi.annotation.versioning.Version;
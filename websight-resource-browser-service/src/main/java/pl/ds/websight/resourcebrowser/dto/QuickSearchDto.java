@@ -7,10 +7,16 @@ public class QuickSearchDto {
 
     private final List<ResourceListDto> results;
     private final Map<String, Object> data;
+    private final String nextCursor;
 
     public QuickSearchDto(List<ResourceListDto> results, Map<String, Object> data) {
+        this(results, data, null);
+    }
+
+    public QuickSearchDto(List<ResourceListDto> results, Map<String, Object> data, String nextCursor) {
         this.results = results;
         this.data = data;
+        this.nextCursor = nextCursor;
     }
 
     public List<ResourceListDto> getResults() {
@@ -21,4 +27,8 @@ public class QuickSearchDto {
         return data;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
 }
@@ -5,6 +5,7 @@ import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public class ResourceListDto {
 
@@ -19,6 +20,8 @@ public class ResourceListDto {
     private boolean orderable;
 
     private List<ResourceListDto> children;
+    private String nextCursor;
+    private Map<String, String> matchedProperties;
 
     public ResourceListDto(ResourceWrapper providedResource, String shadowedBy, boolean hasContent, boolean hasChildren,
             boolean orderable) {
@@ -52,6 +55,14 @@ public class ResourceListDto {
         children.add(child);
     }
 
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public void setMatchedProperties(Map<String, String> matchedProperties) {
+        this.matchedProperties = matchedProperties;
+    }
+
     public String getName() {
         return name;
     }
@@ -88,4 +99,12 @@ public class ResourceListDto {
         return children;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Map<String, String> getMatchedProperties() {
+        return matchedProperties;
+    }
+
 }
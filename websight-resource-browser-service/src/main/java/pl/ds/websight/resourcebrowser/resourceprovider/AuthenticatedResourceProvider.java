@@ -1,7 +1,6 @@
 package pl.ds.websight.resourcebrowser.resourceprovider;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -12,8 +11,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.ds.websight.resourcebrowser.service.impl.ResourceBrowserServiceImpl.ResourceProviderStorageItem;
 
-import javax.jcr.Session;
-import java.util.HashMap;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -29,27 +28,14 @@ public class AuthenticatedResourceProvider implements Comparable<AuthenticatedRe
 
     private final Resource rootResource;
 
-    public AuthenticatedResourceProvider(ResourceProviderStorageItem resourceProviderStorageItem, ResourceResolver resourceResolver) {
+    public AuthenticatedResourceProvider(ResourceProviderStorageItem resourceProviderStorageItem, ResourceResolver resourceResolver,
+            Object providerState) {
         this.resourceProvider = resourceProviderStorageItem.getResourceProvider();
         this.info = resourceProviderStorageItem.getInfo();
-        this.resolveContext = authenticate(resourceResolver, info.getAuthenticate());
+        this.resolveContext = new BasicResolveContext<>(resourceResolver, providerState);
         this.rootResource = getResource(null, info.getRoot());
     }
 
-    private ResolveContext<Object> authenticate(ResourceResolver resourceResolver, String authenticate) {
-        Object providerState = null;
-        try {
-            Map<String, Object> authenticationInfo = new HashMap<>();
-            authenticationInfo.put(ResourceProvider.AUTH_CLONE, true);
-            authenticationInfo.put(ResourceProvider.PROPERTY_AUTHENTICATE, authenticate);
-            authenticationInfo.put("user.jcr.session", resourceResolver.adaptTo(Session.class));
-            providerState = resourceProvider.authenticate(authenticationInfo);
-        } catch (LoginException e) {
-            LOG.warn("Could not authenticate resource provider", e);
-        }
-        return new BasicResolveContext<>(resourceResolver, providerState);
-    }
-
     public void copyResource(String source, String destination) throws PersistenceException {
         if (StringUtils.isNotBlank(source) && StringUtils.isNotBlank(destination)) {
             resourceProvider.copy(resolveContext, source, destination);
@@ -90,6 +76,19 @@ public class AuthenticatedResourceProvider implements Comparable<AuthenticatedRe
         return null;
     }
 
+    public boolean hasChildren(Resource parent) {
+        Node node = parent.adaptTo(Node.class);
+        if (node != null) {
+            try {
+                return node.hasNodes();
+            } catch (RepositoryException e) {
+                LOG.warn("Could not check children of {} from {}", parent.getPath(), info.getName(), e);
+            }
+        }
+        Iterator<Resource> children = listChildren(parent);
+        return children != null && children.hasNext();
+    }
+
     public void commit() throws PersistenceException {
         if (resourceProvider.hasChanges(resolveContext)) {
             resourceProvider.commit(resolveContext);
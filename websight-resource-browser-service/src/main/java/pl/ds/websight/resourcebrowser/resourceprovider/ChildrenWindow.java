@@ -0,0 +1,26 @@
+package pl.ds.websight.resourcebrowser.resourceprovider;
+
+import java.util.List;
+
+public class ChildrenWindow {
+
+    private final List<ResourceWrapper> children;
+    private final String nextCursor;
+
+    public ChildrenWindow(List<ResourceWrapper> children, String nextCursor) {
+        this.children = children;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ResourceWrapper> getChildren() {
+        return children;
+    }
+
+    /**
+     * Name of the last child in this window when more children are available, {@code null} otherwise.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+}
@@ -0,0 +1,94 @@
+package pl.ds.websight.resourcebrowser.resourceprovider;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.nodetype.NodeType;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches answers about node types, keyed by the primary type and mixin type names read from resource properties, so that
+ * node type definitions are resolved only once per distinct type set. Entries are dropped by {@link #invalidate()} when node
+ * types change; answers computed while node types were changing are not kept.
+ */
+@Component(service = NodeTypeCapabilityCache.class)
+public class NodeTypeCapabilityCache {
+
+    private static final String JCR_PRIMARY_TYPE = "jcr:primaryType";
+    private static final String JCR_MIXIN_TYPES = "jcr:mixinTypes";
+    private static final int MAX_SIZE = 1000;
+
+    private final Map<String, NodeTypeCapabilities> capabilities = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public NodeTypeCapabilities getCapabilities(Resource resource, Node node) throws RepositoryException {
+        String key = getKey(resource.getValueMap());
+        NodeTypeCapabilities nodeCapabilities = key != null ? capabilities.get(key) : null;
+        if (nodeCapabilities == null) {
+            long computedGeneration = generation.get();
+            nodeCapabilities = NodeTypeCapabilities.of(node);
+            if (key != null && capabilities.size() < MAX_SIZE) {
+                capabilities.put(key, nodeCapabilities);
+                // node types changed meanwhile, the answer may be based on the old definitions
+                if (generation.get() != computedGeneration) {
+                    capabilities.remove(key, nodeCapabilities);
+                }
+            }
+        }
+        return nodeCapabilities;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        capabilities.clear();
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        invalidate();
+    }
+
+    private static String getKey(ValueMap properties) {
+        String primaryType = properties.get(JCR_PRIMARY_TYPE, String.class);
+        if (primaryType == null) {
+            return null;
+        }
+        String[] mixinTypes = properties.get(JCR_MIXIN_TYPES, String[].class);
+        if (mixinTypes == null || mixinTypes.length == 0) {
+            return primaryType;
+        }
+        String[] sortedMixinTypes = mixinTypes.clone();
+        Arrays.sort(sortedMixinTypes);
+        return primaryType + '|' + String.join(",", sortedMixinTypes);
+    }
+
+    public static final class NodeTypeCapabilities {
+
+        private final boolean orderableChildNodes;
+
+        private NodeTypeCapabilities(boolean orderableChildNodes) {
+            this.orderableChildNodes = orderableChildNodes;
+        }
+
+        private static NodeTypeCapabilities of(Node node) throws RepositoryException {
+            boolean orderable = node.getPrimaryNodeType().hasOrderableChildNodes();
+            for (NodeType mixinType : node.getMixinNodeTypes()) {
+                orderable = orderable || mixinType.hasOrderableChildNodes();
+            }
+            return new NodeTypeCapabilities(orderable);
+        }
+
+        public boolean hasOrderableChildNodes() {
+            return orderableChildNodes;
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+package pl.ds.websight.resourcebrowser.resourceprovider;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.spi.resource.provider.ResolveContext;
+import org.apache.sling.spi.resource.provider.ResourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.service.impl.CacheStatisticsMBean;
+import pl.ds.websight.resourcebrowser.service.impl.ResourceBrowserServiceImpl.ResourceProviderStorageItem;
+
+import javax.jcr.Session;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps authenticated provider states (e.g. cloned JCR sessions) of a user, so that they are not created for every request.
+ * A state is leased to a single resource resolver and returns to the pool when that resolver is closed.
+ */
+public class ProviderStateCache implements CacheStatisticsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProviderStateCache.class);
+
+    private static final String LEASES_PROPERTY = ProviderStateCache.class.getName() + ".leases";
+
+    private static final int DEFAULT_MAX_IDLE_STATES = 100;
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private final Map<StateKey, Deque<IdleState>> idleStates = new ConcurrentHashMap<>();
+    private final Set<ResourceProviderStorageItem> invalidatedProviders = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+    private final AtomicInteger idleStatesCount = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final int maxIdleStates;
+    private final long idleTimeout;
+
+    public ProviderStateCache() {
+        this(DEFAULT_MAX_IDLE_STATES, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public ProviderStateCache(int maxIdleStates, long idleTimeout) {
+        this.maxIdleStates = maxIdleStates;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Object acquire(ResourceProviderStorageItem item, ResourceResolver resourceResolver) {
+        Leases leases = getLeases(resourceResolver);
+        if (leases.states.containsKey(item)) {
+            hits.incrementAndGet();
+            return leases.states.get(item);
+        }
+        String userId = resourceResolver.getUserID();
+        StateKey key = userId != null ? new StateKey(userId, item) : null;
+        Object providerState = key != null ? pollIdleState(key, resourceResolver) : null;
+        if (providerState == null) {
+            misses.incrementAndGet();
+            providerState = authenticate(item, resourceResolver);
+        }
+        if (providerState != null) {
+            leases.states.put(item, providerState);
+            leases.keys.put(item, key);
+        }
+        return providerState;
+    }
+
+    private Object pollIdleState(StateKey key, ResourceResolver resourceResolver) {
+        Deque<IdleState> states = idleStates.get(key);
+        IdleState idleState = states != null ? states.pollFirst() : null;
+        while (idleState != null) {
+            idleStatesCount.decrementAndGet();
+            if (!idleState.isExpired(idleTimeout)) {
+                hits.incrementAndGet();
+                refresh(key.item, idleState.providerState, resourceResolver);
+                return idleState.providerState;
+            }
+            evict(key.item, idleState.providerState);
+            idleState = states.pollFirst();
+        }
+        return null;
+    }
+
+    private static Object authenticate(ResourceProviderStorageItem item, ResourceResolver resourceResolver) {
+        try {
+            Map<String, Object> authenticationInfo = new HashMap<>();
+            authenticationInfo.put(ResourceProvider.AUTH_CLONE, true);
+            authenticationInfo.put(ResourceProvider.PROPERTY_AUTHENTICATE, item.getInfo().getAuthenticate());
+            authenticationInfo.put("user.jcr.session", resourceResolver.adaptTo(Session.class));
+            return item.getResourceProvider().authenticate(authenticationInfo);
+        } catch (LoginException e) {
+            LOG.warn("Could not authenticate resource provider", e);
+        }
+        return null;
+    }
+
+    private static void refresh(ResourceProviderStorageItem item, Object providerState, ResourceResolver resourceResolver) {
+        try {
+            item.getResourceProvider().refresh(new BasicResolveContext<>(resourceResolver, providerState));
+        } catch (Exception e) {
+            LOG.warn("Could not refresh {} state", item.getInfo().getName(), e);
+        }
+    }
+
+    private void release(ResourceProviderStorageItem item, StateKey key, Object providerState, ResourceResolver resourceResolver) {
+        boolean reusable = key != null && !invalidatedProviders.contains(item) && revertChanges(item, providerState, resourceResolver);
+        if (reusable && idleStatesCount.incrementAndGet() <= maxIdleStates) {
+            idleStates.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).offerFirst(new IdleState(providerState));
+            return;
+        }
+        if (reusable) {
+            idleStatesCount.decrementAndGet();
+        }
+        logout(item, providerState);
+    }
+
+    private static boolean revertChanges(ResourceProviderStorageItem item, Object providerState, ResourceResolver resourceResolver) {
+        ResolveContext<Object> resolveContext = new BasicResolveContext<>(resourceResolver, providerState);
+        ResourceProvider<Object> resourceProvider = item.getResourceProvider();
+        try {
+            if (resourceProvider.hasChanges(resolveContext)) {
+                resourceProvider.revert(resolveContext);
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.warn("Could not revert {} state", item.getInfo().getName(), e);
+        }
+        return false;
+    }
+
+    private void evictExpired() {
+        for (Map.Entry<StateKey, Deque<IdleState>> entry : idleStates.entrySet()) {
+            Iterator<IdleState> states = entry.getValue().iterator();
+            while (states.hasNext()) {
+                IdleState idleState = states.next();
+                if (idleState.isExpired(idleTimeout) && entry.getValue().removeFirstOccurrence(idleState)) {
+                    idleStatesCount.decrementAndGet();
+                    evict(entry.getKey().item, idleState.providerState);
+                }
+            }
+        }
+    }
+
+    private void evict(ResourceProviderStorageItem item, Object providerState) {
+        evictions.incrementAndGet();
+        logout(item, providerState);
+    }
+
+    private static void logout(ResourceProviderStorageItem item, Object providerState) {
+        try {
+            item.getResourceProvider().logout(providerState);
+        } catch (Exception e) {
+            LOG.warn("Could not log out from {}", item.getInfo().getName(), e);
+        }
+    }
+
+    public void invalidate(ResourceProviderStorageItem item) {
+        invalidatedProviders.add(item);
+        idleStates.keySet().removeIf(key -> {
+            if (key.item == item) {
+                evictAll(key);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidateAll() {
+        idleStates.keySet().removeIf(key -> {
+            evictAll(key);
+            return true;
+        });
+    }
+
+    private void evictAll(StateKey key) {
+        Deque<IdleState> states = idleStates.get(key);
+        IdleState idleState;
+        while (states != null && (idleState = states.pollFirst()) != null) {
+            idleStatesCount.decrementAndGet();
+            evict(key.item, idleState.providerState);
+        }
+    }
+
+    private Leases getLeases(ResourceResolver resourceResolver) {
+        Map<String, Object> propertyMap = resourceResolver.getPropertyMap();
+        Object leases = propertyMap.get(LEASES_PROPERTY);
+        if (!(leases instanceof Leases)) {
+            leases = new Leases(resourceResolver);
+            propertyMap.put(LEASES_PROPERTY, leases);
+        }
+        return (Leases) leases;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long currentHits = hits.get();
+        long requests = currentHits + misses.get();
+        return requests > 0 ? (double) currentHits / requests : 0;
+    }
+
+    /**
+     * Provider states used by a single resource resolver. Resource resolver closes objects from its property map when it is
+     * closed itself, which gives the states back to the pool.
+     */
+    private final class Leases implements Closeable {
+
+        private final ResourceResolver resourceResolver;
+        private final Map<ResourceProviderStorageItem, Object> states = new IdentityHashMap<>();
+        private final Map<ResourceProviderStorageItem, StateKey> keys = new IdentityHashMap<>();
+
+        private Leases(ResourceResolver resourceResolver) {
+            this.resourceResolver = resourceResolver;
+        }
+
+        @Override
+        public void close() {
+            states.forEach((item, providerState) -> release(item, keys.get(item), providerState, resourceResolver));
+            states.clear();
+            keys.clear();
+            evictExpired();
+            LOG.debug("Provider states cache hits: {}, misses: {}, evictions: {}", hits, misses, evictions);
+        }
+
+    }
+
+    private static final class StateKey {
+
+        private final String userId;
+        private final ResourceProviderStorageItem item;
+
+        private StateKey(String userId, ResourceProviderStorageItem item) {
+            this.userId = userId;
+            this.item = item;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StateKey stateKey = (StateKey) o;
+            return userId.equals(stateKey.userId) && item == stateKey.item;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, System.identityHashCode(item));
+        }
+
+    }
+
+    private static final class IdleState {
+
+        private final Object providerState;
+        private final long idleSince = System.currentTimeMillis();
+
+        private IdleState(Object providerState) {
+            this.providerState = providerState;
+        }
+
+        private boolean isExpired(long idleTimeout) {
+            return System.currentTimeMillis() - idleSince > idleTimeout;
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package pl.ds.websight.resourcebrowser.resourceprovider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable trie of resource provider roots split into path segments. Answers which providers cover a path and which ones are
+ * mounted below it in O(depth) without allocating, because every node keeps precomputed, unmodifiable result lists.
+ */
+public final class ResourceProviderRootTrie<T> {
+
+    private static final ResourceProviderRootTrie<Object> EMPTY = build(Collections.emptyList(), provider -> null);
+
+    private final Node<T> root;
+
+    private ResourceProviderRootTrie(Node<T> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ResourceProviderRootTrie<T> empty() {
+        return (ResourceProviderRootTrie<T>) EMPTY;
+    }
+
+    /**
+     * Builds trie from providers in the order in which they should be returned by lookups.
+     */
+    public static <T> ResourceProviderRootTrie<T> build(List<T> providers, Function<T, String> rootExtractor) {
+        Node<T> root = new Node<>(null);
+        for (int index = 0; index < providers.size(); index++) {
+            String providerRoot = rootExtractor.apply(providers.get(index));
+            if (providerRoot == null) {
+                continue;
+            }
+            Node<T> node = root;
+            int start = 0;
+            while ((start = nextSegmentStart(providerRoot, start)) >= 0) {
+                int end = segmentEnd(providerRoot, start);
+                node = node.getOrCreateChild(providerRoot.substring(start, end));
+                start = end;
+            }
+            node.mounted.add(index);
+        }
+        root.freeze(providers, Collections.emptyList());
+        return new ResourceProviderRootTrie<>(root);
+    }
+
+    /**
+     * Returns providers whose root is equal to or is an ancestor of the given path, the deepest mount first.
+     */
+    public List<T> getProvidersForPath(String path) {
+        Node<T> node = root;
+        List<T> result = root.covering;
+        int start = 0;
+        while ((start = nextSegmentStart(path, start)) >= 0) {
+            int end = segmentEnd(path, start);
+            node = node.findChild(path, start, end);
+            if (node == null) {
+                break;
+            }
+            result = node.covering;
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Returns providers whose root is placed strictly below the given path.
+     */
+    public List<T> getProvidersBelowPath(String path) {
+        Node<T> node = findNode(path);
+        return node != null ? node.below : Collections.emptyList();
+    }
+
+    public boolean hasProvidersBelowPath(String path) {
+        return !getProvidersBelowPath(path).isEmpty();
+    }
+
+    private Node<T> findNode(String path) {
+        Node<T> node = root;
+        int start = 0;
+        while (node != null && (start = nextSegmentStart(path, start)) >= 0) {
+            int end = segmentEnd(path, start);
+            node = node.findChild(path, start, end);
+            start = end;
+        }
+        return node;
+    }
+
+    private static int nextSegmentStart(String path, int from) {
+        int length = path.length();
+        for (int i = from; i < length; i++) {
+            if (path.charAt(i) != '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static final class Node<T> {
+
+        private final String segment;
+        private final List<Integer> mounted = new ArrayList<>(1);
+        private List<Node<T>> children = new ArrayList<>(2);
+        private List<T> covering;
+        private List<T> below;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node<T> getOrCreateChild(String childSegment) {
+            for (Node<T> child : children) {
+                if (child.segment.equals(childSegment)) {
+                    return child;
+                }
+            }
+            Node<T> child = new Node<>(childSegment);
+            children.add(child);
+            return child;
+        }
+
+        private Node<T> findChild(String path, int start, int end) {
+            int length = end - start;
+            for (Node<T> child : children) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        // returns indexes of providers mounted at this node or below it
+        private List<Integer> freeze(List<T> providers, List<T> parentCovering) {
+            if (mounted.isEmpty()) {
+                covering = parentCovering;
+            } else {
+                List<T> nodeCovering = new ArrayList<>(mounted.size() + parentCovering.size());
+                mounted.forEach(index -> nodeCovering.add(providers.get(index)));
+                nodeCovering.addAll(parentCovering);
+                covering = Collections.unmodifiableList(nodeCovering);
+            }
+            List<Integer> subtree = new ArrayList<>();
+            for (Node<T> child : children) {
+                subtree.addAll(child.freeze(providers, covering));
+            }
+            children = Collections.unmodifiableList(new ArrayList<>(children));
+            below = toProviders(providers, subtree);
+            subtree.addAll(mounted);
+            return subtree;
+        }
+
+        // keeps the order of the list the trie was built from
+        private static <T> List<T> toProviders(List<T> providers, List<Integer> indexes) {
+            if (indexes.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<T> result = new ArrayList<>(indexes.size());
+            indexes.stream()
+                    .sorted()
+                    .forEachOrdered(index -> result.add(providers.get(index)));
+            return Collections.unmodifiableList(result);
+        }
+
+    }
+
+}
@@ -12,43 +12,81 @@ import pl.ds.websight.resourcebrowser.service.impl.ResourceBrowserServiceImpl.Re
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
-import javax.jcr.nodetype.NodeTypeDefinition;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toList;
 
 public class ResourceProvidersControl {
 
     private static final Logger LOG = LoggerFactory.getLogger(ResourceProvidersControl.class);
 
-    private final List<AuthenticatedResourceProvider> authResourceProviders;
+    private final Map<ResourceProviderStorageItem, AuthenticatedResourceProvider> authResourceProviders;
+
+    private final ResourceProviderRootTrie<ResourceProviderStorageItem> providerRootTrie;
 
-    public ResourceProvidersControl(List<ResourceProviderStorageItem> resourceProviders, ResourceResolver resourceResolver) {
-        this.authResourceProviders = authenticate(resourceProviders, resourceResolver);
+    private final NodeTypeCapabilityCache nodeTypeCapabilityCache;
+
+    public ResourceProvidersControl(List<ResourceProviderStorageItem> resourceProviders,
+            ResourceProviderRootTrie<ResourceProviderStorageItem> providerRootTrie, ProviderStateCache providerStateCache,
+            NodeTypeCapabilityCache nodeTypeCapabilityCache, ResourceResolver resourceResolver) {
+        this.authResourceProviders = authenticate(resourceProviders, providerStateCache, resourceResolver);
+        this.providerRootTrie = providerRootTrie;
+        this.nodeTypeCapabilityCache = nodeTypeCapabilityCache;
     }
 
-    private static List<AuthenticatedResourceProvider> authenticate(List<ResourceProviderStorageItem> resourceProviders,
+    private static Map<ResourceProviderStorageItem, AuthenticatedResourceProvider> authenticate(
+            List<ResourceProviderStorageItem> resourceProviders, ProviderStateCache providerStateCache,
             ResourceResolver resourceResolver) {
-        return resourceProviders.stream()
-                .map(item -> new AuthenticatedResourceProvider(item, resourceResolver))
-                .sorted(Comparator.reverseOrder())
-                .collect(toList());
+        Map<ResourceProviderStorageItem, AuthenticatedResourceProvider> authenticated = new IdentityHashMap<>();
+        for (ResourceProviderStorageItem item : resourceProviders) {
+            Object providerState = providerStateCache.acquire(item, resourceResolver);
+            authenticated.put(item, new AuthenticatedResourceProvider(item, resourceResolver, providerState));
+        }
+        return authenticated;
     }
 
     public AuthenticatedResourceProvider getBestMatchingProvider(String path) {
-        return streamOfProvidersForPath(path).findFirst().orElse(null);
+        for (ResourceProviderStorageItem item : providerRootTrie.getProvidersForPath(path)) {
+            AuthenticatedResourceProvider authProvider = authResourceProviders.get(item);
+            if (authProvider != null) {
+                return authProvider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns name of the provider which hides the given resource from the resource resolver, or {@code null} when the resolver
+     * serves one of its variants. Resolver serves a path from the best matching provider only, so this is decided from the
+     * provider routing; the resolver is asked only when the best matching provider is not handled by this control.
+     */
+    public String getShadowingProviderName(ResourceWrapper providedResource, ResourceResolver resourceResolver) {
+        Map<AuthenticatedResourceProvider, Resource> variants = providedResource.getVariants();
+        if (variants.isEmpty()) {
+            // synthetic resource of a path leading to mounted providers
+            return null;
+        }
+        String path = providedResource.getPath();
+        List<ResourceProviderStorageItem> coveringProviders = providerRootTrie.getProvidersForPath(path);
+        AuthenticatedResourceProvider resolvingProvider = coveringProviders.isEmpty() ? null :
+                authResourceProviders.get(coveringProviders.get(0));
+        if (resolvingProvider != null) {
+            return variants.containsKey(resolvingProvider) ? null : resolvingProvider.getInfo().getName();
+        }
+        if (resourceResolver.getResource(path) != null) {
+            return null;
+        }
+        AuthenticatedResourceProvider bestMatchingProvider = getBestMatchingProvider(path);
+        return bestMatchingProvider != null ? bestMatchingProvider.getInfo().getName() : null;
     }
 
     public ResourceWrapper getResource(ResourceResolver resourceResolver, String path) {
         ResourceWrapper resource = null;
-        List<AuthenticatedResourceProvider> providers = streamOfProvidersForPath(path).collect(toList());
-        for (AuthenticatedResourceProvider authProvider : providers) {
+        for (AuthenticatedResourceProvider authProvider : getProvidersForPath(path)) {
             Resource providedResource = authProvider.getResource(null, path);
             if (providedResource != null) {
                 if (resource == null) {
@@ -65,50 +103,137 @@ public class ResourceProvidersControl {
     }
 
     public List<ResourceWrapper> listChildren(ResourceWrapper parentProvidedResource) {
-        List<ResourceWrapper> resources = new LinkedList<>();
+        Map<String, ResourceWrapper> resourcesByPath = new LinkedHashMap<>();
         for (Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant : parentProvidedResource.getVariants().entrySet()) {
             AuthenticatedResourceProvider authProvider = resourceVariant.getKey();
             Iterator<Resource> children = authProvider.listChildren(resourceVariant.getValue());
             if (children != null) {
-                children.forEachRemaining(resource -> addOrUpdateResource(resources, authProvider, resource));
+                children.forEachRemaining(resource -> addOrUpdateResource(resourcesByPath, authProvider, resource));
             }
         }
-        listChildrenRegisteredBelowParent(resources, parentProvidedResource);
+        listChildrenRegisteredBelowParent(resourcesByPath, parentProvidedResource);
+        List<ResourceWrapper> resources = new ArrayList<>(resourcesByPath.values());
         if (shouldSort(parentProvidedResource)) {
             resources.sort(Comparator.comparing(ResourceWrapper::getName, String.CASE_INSENSITIVE_ORDER));
         }
         return resources;
     }
 
-    private void listChildrenRegisteredBelowParent(List<ResourceWrapper> resources, ResourceWrapper parentProvidedResource) {
+    /**
+     * Lists names of children without resolving them: one list for every variant of the resource, in the order returned by its
+     * provider, and one list for the resources of providers registered below it.
+     */
+    public List<List<String>> listChildrenNames(ResourceWrapper parentProvidedResource) {
+        List<List<String>> childrenNames = new ArrayList<>();
+        for (Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant : parentProvidedResource.getVariants().entrySet()) {
+            Iterator<Resource> children = resourceVariant.getKey().listChildren(resourceVariant.getValue());
+            List<String> names = new ArrayList<>();
+            if (children != null) {
+                children.forEachRemaining(child -> names.add(child.getName()));
+            }
+            childrenNames.add(names);
+        }
+        Map<String, ResourceWrapper> registeredBelowParent = new LinkedHashMap<>();
+        listChildrenRegisteredBelowParent(registeredBelowParent, parentProvidedResource);
+        List<String> names = new ArrayList<>();
+        registeredBelowParent.values().forEach(resource -> names.add(resource.getName()));
+        childrenNames.add(names);
+        return childrenNames;
+    }
+
+    /**
+     * Lists a window of children starting after the child named {@code cursor} (or at {@code offset} when cursor is not set or
+     * the cursor child of an orderable parent is gone) with at most {@code limit} elements, where non-positive limit means no
+     * limit. Children of orderable parents served by a single provider are read lazily from the provider iterator and reading
+     * stops right after the window.
+     */
+    public ChildrenWindow listChildren(ResourceWrapper parentProvidedResource, int offset, int limit, String cursor) {
+        boolean sort = shouldSort(parentProvidedResource);
+        if (!sort && parentProvidedResource.getVariants().size() == 1 &&
+                !hasProvidersRegisteredBelowPath(parentProvidedResource.getPath())) {
+            ChildrenWindow window = streamChildren(parentProvidedResource, offset, limit, cursor);
+            if (window != null) {
+                return window;
+            }
+        }
+        List<ResourceWrapper> children = listChildren(parentProvidedResource);
+        int start = cursor != null ? indexAfterCursor(children, cursor, sort) : -1;
+        if (start < 0) {
+            start = Math.min(Math.max(offset, 0), children.size());
+        }
+        int end = limit > 0 ? Math.min(start + limit, children.size()) : children.size();
+        String nextCursor = end < children.size() && end > start ? children.get(end - 1).getName() : null;
+        return new ChildrenWindow(new ArrayList<>(children.subList(start, end)), nextCursor);
+    }
+
+    // returns null when the cursor child is not found, so that the children are listed again
+    private static ChildrenWindow streamChildren(ResourceWrapper parentProvidedResource, int offset, int limit, String cursor) {
+        Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant = parentProvidedResource.getPrimaryVariant();
+        AuthenticatedResourceProvider authProvider = resourceVariant.getKey();
+        Iterator<Resource> children = authProvider.listChildren(resourceVariant.getValue());
+        List<ResourceWrapper> window = new ArrayList<>();
+        if (children == null) {
+            return new ChildrenWindow(window, null);
+        }
+        if (cursor != null) {
+            boolean found = false;
+            while (!found && children.hasNext()) {
+                found = cursor.equals(children.next().getName());
+            }
+            if (!found) {
+                return null;
+            }
+        } else {
+            for (int skipped = 0; skipped < offset && children.hasNext(); skipped++) {
+                children.next();
+            }
+        }
+        while (children.hasNext() && (limit <= 0 || window.size() < limit)) {
+            Resource child = children.next();
+            ResourceWrapper providedChild = new ResourceWrapper(child);
+            providedChild.addVariant(authProvider, child);
+            window.add(providedChild);
+        }
+        String nextCursor = children.hasNext() && !window.isEmpty() ? window.get(window.size() - 1).getName() : null;
+        return new ChildrenWindow(window, nextCursor);
+    }
+
+    // returns -1 when the cursor child of unsorted children is gone, as its position is not known then
+    private static int indexAfterCursor(List<ResourceWrapper> children, String cursor, boolean sorted) {
+        for (int i = 0; i < children.size(); i++) {
+            String name = children.get(i).getName();
+            if (cursor.equals(name)) {
+                return i + 1;
+            }
+            if (sorted && String.CASE_INSENSITIVE_ORDER.compare(name, cursor) > 0) {
+                // cursor child is gone, continue with the next child in order
+                return i;
+            }
+        }
+        return sorted ? children.size() : -1;
+    }
+
+    private void listChildrenRegisteredBelowParent(Map<String, ResourceWrapper> resourcesByPath, ResourceWrapper parentProvidedResource) {
         String parentPath = parentProvidedResource.getPath();
         for (AuthenticatedResourceProvider provider : getProvidersRegisteredBelowPath(parentPath)) {
             String providerRootPath = provider.getInfo().getRoot();
             boolean isRegisteredAsDirectlyBelowParent = parentPath.equals(ResourceUtil.getParent(providerRootPath));
             if (isRegisteredAsDirectlyBelowParent) {
-                addOrUpdateResource(resources, provider, provider.getRootResource());
+                addOrUpdateResource(resourcesByPath, provider, provider.getRootResource());
             } else {
                 String relativePathWithTrailingSlash = relativizePath(parentPath, providerRootPath);
                 String nameOfDirectChild = StringUtils.substringBefore(relativePathWithTrailingSlash, "/");
                 String path = StringUtils.appendIfMissing(parentProvidedResource.getPath(), "/") + nameOfDirectChild;
-                boolean isAlreadyPresent = resources.stream().anyMatch(resource -> StringUtils.equals(resource.getPath(), path));
-                if (!isAlreadyPresent) {
-                    resources.add(new ResourceWrapper(nameOfDirectChild, path));
-                }
+                resourcesByPath.computeIfAbsent(path, key -> new ResourceWrapper(nameOfDirectChild, path));
             }
         }
     }
 
-    private static void addOrUpdateResource(List<ResourceWrapper> resources, AuthenticatedResourceProvider provider, Resource resource) {
+    private static void addOrUpdateResource(Map<String, ResourceWrapper> resourcesByPath, AuthenticatedResourceProvider provider,
+            Resource resource) {
         if (resource != null) {
-            ResourceWrapper providedResource = resources.stream()
-                    .filter(r -> StringUtils.equals(r.getPath(), resource.getPath()))
-                    .findFirst().orElse(null);
-            if (providedResource == null) {
-                providedResource = new ResourceWrapper(resource);
-                resources.add(providedResource);
-            }
-            providedResource.addVariant(provider, resource);
+            resourcesByPath.computeIfAbsent(resource.getPath(), path -> new ResourceWrapper(resource))
+                    .addVariant(provider, resource);
         }
     }
 
@@ -120,12 +245,12 @@ public class ResourceProvidersControl {
                 StringUtils.appendIfMissing(rootPathCandidate, "/"));
     }
 
-    public static boolean shouldSort(ResourceWrapper providedParent) {
+    public boolean shouldSort(ResourceWrapper providedParent) {
         for (Resource parent : providedParent.getVariants().values()) {
             Node node = parent.adaptTo(Node.class);
             if (node != null) {
                 try {
-                    return !hasOrderableChildNodes(node);
+                    return !nodeTypeCapabilityCache.getCapabilities(parent, node).hasOrderableChildNodes();
                 } catch (RepositoryException e) {
                     LOG.warn("Could not get Node Type Definition for Node: {}", parent.getPath(), e);
                 }
@@ -134,33 +259,52 @@ public class ResourceProvidersControl {
         return true;
     }
 
-    private static boolean hasOrderableChildNodes(Node node) throws RepositoryException {
-        return node.getPrimaryNodeType().hasOrderableChildNodes() ||
-                Arrays.stream(node.getMixinNodeTypes()).anyMatch(NodeTypeDefinition::hasOrderableChildNodes);
+    public boolean hasChildren(ResourceWrapper parentProvidedResource) {
+        for (Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant : parentProvidedResource.getVariants().entrySet()) {
+            if (resourceVariant.getKey().hasChildren(resourceVariant.getValue())) {
+                return true;
+            }
+        }
+        return hasChildrenRegisteredBelowParent(parentProvidedResource.getPath());
+    }
+
+    // mirrors listChildrenRegisteredBelowParent: a provider mounted directly below counts only when its root resolves
+    private boolean hasChildrenRegisteredBelowParent(String parentPath) {
+        for (AuthenticatedResourceProvider provider : getProvidersRegisteredBelowPath(parentPath)) {
+            String providerRootPath = provider.getInfo().getRoot();
+            if (!parentPath.equals(ResourceUtil.getParent(providerRootPath)) || provider.getRootResource() != null) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public boolean hasChildren(ResourceWrapper parentProvidedResource) {
-        return !listChildren(parentProvidedResource).isEmpty();
+    private boolean hasProvidersRegisteredBelowPath(String path) {
+        for (ResourceProviderStorageItem item : providerRootTrie.getProvidersBelowPath(path)) {
+            if (authResourceProviders.containsKey(item)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private List<AuthenticatedResourceProvider> getProvidersRegisteredBelowPath(String path) {
-        return authResourceProviders.stream()
-                .filter(provider -> {
-                    String providerRoot = provider.getInfo().getRoot();
-                    return !providerRoot.equals(path) && pathStartsWith(providerRoot, path);
-                }).collect(toList());
+        return getAuthenticated(providerRootTrie.getProvidersBelowPath(path));
     }
 
-    private Stream<AuthenticatedResourceProvider> streamOfProvidersForPath(String path) {
-        return authResourceProviders.stream()
-                .filter(provider -> pathStartsWith(path, provider.getInfo().getRoot()));
+    private List<AuthenticatedResourceProvider> getProvidersForPath(String path) {
+        return getAuthenticated(providerRootTrie.getProvidersForPath(path));
     }
 
-    private static boolean pathStartsWith(String path, String prefixPath) {
-        // adding '/' at the end to avoid pathStartsWith("/apps/websight-any", "/apps/websight") == true
-        String pathToCompare = StringUtils.appendIfMissing(path, "/");
-        String prefixPathToCompare = StringUtils.appendIfMissing(prefixPath, "/");
-        return StringUtils.startsWith(pathToCompare, prefixPathToCompare);
+    private List<AuthenticatedResourceProvider> getAuthenticated(List<ResourceProviderStorageItem> items) {
+        List<AuthenticatedResourceProvider> providers = new ArrayList<>(items.size());
+        for (ResourceProviderStorageItem item : items) {
+            AuthenticatedResourceProvider authProvider = authResourceProviders.get(item);
+            if (authProvider != null) {
+                providers.add(authProvider);
+            }
+        }
+        return providers;
     }
 
 }
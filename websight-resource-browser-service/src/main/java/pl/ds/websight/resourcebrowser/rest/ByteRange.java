@@ -0,0 +1,99 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Byte range of a content requested with the Range header, see RFC 7233.
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final int MAX_RANGES = 20;
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses ranges of a content of the given length. Returns {@code null} when the header should be ignored and the whole
+     * content sent, i.e. when the header is not valid or when there are too many or overlapping ranges, and an empty list when
+     * none of the ranges can be satisfied.
+     */
+    static List<ByteRange> parse(String header, long length) {
+        if (!StringUtils.startsWith(header, BYTES_UNIT)) {
+            return null;
+        }
+        String[] specs = StringUtils.split(header.substring(BYTES_UNIT.length()), ',');
+        if (specs.length == 0 || specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            String trimmedSpec = spec.trim();
+            int separator = trimmedSpec.indexOf('-');
+            if (separator < 0) {
+                return null;
+            }
+            String firstPosition = trimmedSpec.substring(0, separator).trim();
+            String lastPosition = trimmedSpec.substring(separator + 1).trim();
+            if (!isPosition(firstPosition) || !isPosition(lastPosition)) {
+                return null;
+            }
+            long first = NumberUtils.toLong(firstPosition, -1);
+            long last = NumberUtils.toLong(lastPosition, -1);
+            if (first < 0 && !firstPosition.isEmpty() || last < 0 && !lastPosition.isEmpty()) {
+                // too large to be a position
+                return null;
+            }
+            if (first < 0 && last < 0 || first >= 0 && last >= 0 && last < first) {
+                return null;
+            }
+            if (first < 0) {
+                // suffix range of the last bytes
+                if (last > 0 && length > 0) {
+                    ranges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                }
+            } else if (first < length) {
+                ranges.add(new ByteRange(first, last < 0 ? length - 1 : Math.min(last, length - 1)));
+            }
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        for (int i = 1; i < ranges.size(); i++) {
+            if (ranges.get(i).start <= ranges.get(i - 1).end) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    // positions are optional, but must be numbers when set
+    private static boolean isPosition(String position) {
+        return position.isEmpty() || NumberUtils.isDigits(position);
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    long getLength() {
+        return end - start + 1;
+    }
+
+    String toContentRange(long contentLength) {
+        return "bytes " + start + '-' + end + '/' + contentLength;
+    }
+
+}
@@ -0,0 +1,114 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.resource.Resource;
+import pl.ds.websight.resourcebrowser.resourceprovider.AuthenticatedResourceProvider;
+import pl.ds.websight.resourcebrowser.service.impl.ResourceContentService;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Content of a resource, read either from its local file or from streams of its content provider. A file is opened once and
+ * read at the position of every requested range with {@link FileChannel#transferTo}, and its length is taken from the opened
+ * channel, so that it matches the bytes which are sent even if the resource metadata is stale.
+ */
+final class ContentSource implements Closeable {
+
+    private final ResourceContentService resourceContentService;
+    private final Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant;
+    private final FileChannel channel;
+    private final long length;
+    private long position;
+    private InputStream stream;
+
+    private ContentSource(ResourceContentService resourceContentService,
+            Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant, FileChannel channel, long length) {
+        this.resourceContentService = resourceContentService;
+        this.resourceVariant = resourceVariant;
+        this.channel = channel;
+        this.length = length;
+    }
+
+    static ContentSource of(ResourceContentService resourceContentService,
+            Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) throws IOException {
+        Path contentFile = resourceContentService.getContentFile(resourceVariant);
+        if (contentFile != null) {
+            try {
+                FileChannel channel = FileChannel.open(contentFile, StandardOpenOption.READ);
+                return new ContentSource(resourceContentService, resourceVariant, channel, channel.size());
+            } catch (NoSuchFileException e) {
+                // the file is gone, the provider decides whether there is any content
+            }
+        }
+        return new ContentSource(resourceContentService, resourceVariant, null,
+                resourceContentService.getContentLength(resourceVariant));
+    }
+
+    /**
+     * Returns length of the content in bytes, or {@code -1} when it is not known.
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * Starts reading the content at the given offset. Returns {@code false} when the content cannot be found.
+     */
+    boolean open(long offset) throws IOException {
+        if (channel != null) {
+            position = offset;
+            return true;
+        }
+        IOUtils.closeQuietly(stream);
+        stream = offset > 0 ? resourceContentService.getContent(resourceVariant, offset) :
+                resourceContentService.getContent(resourceVariant);
+        return stream != null;
+    }
+
+    /**
+     * Copies the given number of bytes from the opened offset, or the rest of the content when count is negative.
+     */
+    void copyTo(OutputStream outputStream, long count) throws IOException {
+        if (channel == null) {
+            if (count < 0) {
+                IOUtils.copyLarge(stream, outputStream);
+            } else {
+                IOUtils.copyLarge(stream, outputStream, 0, count);
+            }
+            return;
+        }
+        long end = count < 0 ? length : position + count;
+        // containers whose streams are channels receive the file without a copy through a heap buffer
+        WritableByteChannel target = outputStream instanceof WritableByteChannel ? (WritableByteChannel) outputStream :
+                Channels.newChannel(outputStream);
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                // the file was truncated after its length was sent
+                throw new EOFException("Content file ends before " + end + " bytes");
+            }
+            position += transferred;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        } else if (stream != null) {
+            stream.close();
+        }
+    }
+
+}
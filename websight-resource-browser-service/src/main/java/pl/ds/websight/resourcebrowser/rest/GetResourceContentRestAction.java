@@ -1,6 +1,6 @@
 package pl.ds.websight.resourcebrowser.rest;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.osgi.service.component.annotations.Component;
@@ -17,19 +17,27 @@ import pl.ds.websight.rest.framework.RestAction;
 import pl.ds.websight.rest.framework.RestActionResult;
 import pl.ds.websight.rest.framework.annotations.SlingAction;
 
-import java.io.InputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
 import static pl.ds.websight.rest.framework.annotations.SlingAction.HttpMethod.GET;
 
 @Component
 @SlingAction(GET)
-public class GetResourceContentRestAction extends AbstractRestAction<ProvidedResourceRestModel, FreeFormResponse>
-        implements RestAction<ProvidedResourceRestModel, FreeFormResponse> {
+public class GetResourceContentRestAction extends AbstractRestAction<GetResourceContentRestModel, FreeFormResponse>
+        implements RestAction<GetResourceContentRestModel, FreeFormResponse> {
 
     private static final Logger LOG = LoggerFactory.getLogger(GetResourceContentRestAction.class);
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
 
     @Reference
     private ResourceBrowserService resourceBrowserService;
@@ -38,7 +46,7 @@ public class GetResourceContentRestAction extends AbstractRestAction<ProvidedRes
     private ResourceContentService resourceContentService;
 
     @Override
-    protected RestActionResult<FreeFormResponse> performAction(ProvidedResourceRestModel model) {
+    protected RestActionResult<FreeFormResponse> performAction(GetResourceContentRestModel model) {
         return RestActionResult.freeFormResponse(response -> {
             Map.Entry<AuthenticatedResourceProvider, Resource> primaryVariant = getPrimaryVariant(model);
             if (primaryVariant == null) {
@@ -46,21 +54,156 @@ public class GetResourceContentRestAction extends AbstractRestAction<ProvidedRes
                 response.sendError(SC_NOT_FOUND);
                 return;
             }
-            // Don't cache the results
-            response.setHeader("Cache-Control", "no-store");
-            try (InputStream contentStream = resourceContentService.getContent(primaryVariant)) {
-                if (contentStream == null) {
-                    LOG.warn("Could not get content for resource '{}' within requested providers", model.getPath());
-                    response.sendError(SC_NOT_FOUND);
+            String eTag = resourceContentService.getETag(primaryVariant);
+            long lastModified = resourceContentService.getLastModified(primaryVariant);
+            if (eTag == null && lastModified < 0) {
+                // Don't cache the results
+                response.setHeader("Cache-Control", "no-store");
+            } else {
+                // content may be kept by the browser of the user, but it is validated on every use
+                response.setHeader("Cache-Control", "private, no-cache");
+                if (eTag != null) {
+                    response.setHeader("ETag", toEntityTag(eTag));
+                }
+                if (lastModified >= 0) {
+                    response.setDateHeader("Last-Modified", lastModified);
+                }
+                if (isNotModified(model, eTag, lastModified)) {
+                    response.setStatus(SC_NOT_MODIFIED);
                     return;
                 }
-                response.setContentType(resourceContentService.getMimeType(primaryVariant));
-                IOUtils.copy(contentStream, response.getOutputStream());
+            }
+            try (ContentSource content = ContentSource.of(resourceContentService, primaryVariant)) {
+                long contentLength = content.getLength();
+                List<ByteRange> ranges = getRanges(model, eTag, lastModified, contentLength);
+                if (ranges == null) {
+                    sendContent(model, primaryVariant, content, response);
+                } else if (ranges.isEmpty()) {
+                    response.setHeader("Content-Range", "bytes */" + contentLength);
+                    response.sendError(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                } else if (ranges.size() == 1) {
+                    sendRange(model, primaryVariant, content, ranges.get(0), response);
+                } else {
+                    sendRanges(model, primaryVariant, content, ranges, response);
+                }
             }
         });
     }
 
-    private Map.Entry<AuthenticatedResourceProvider, Resource> getPrimaryVariant(ProvidedResourceRestModel model) {
+    private void sendContent(GetResourceContentRestModel model, Map.Entry<AuthenticatedResourceProvider, Resource> primaryVariant,
+            ContentSource content, HttpServletResponse response) throws IOException {
+        if (!content.open(0)) {
+            sendContentNotFound(model, response);
+            return;
+        }
+        response.setContentType(resourceContentService.getMimeType(primaryVariant));
+        if (content.getLength() >= 0) {
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setContentLengthLong(content.getLength());
+        }
+        content.copyTo(response.getOutputStream(), content.getLength());
+    }
+
+    private void sendRange(GetResourceContentRestModel model, Map.Entry<AuthenticatedResourceProvider, Resource> primaryVariant,
+            ContentSource content, ByteRange range, HttpServletResponse response) throws IOException {
+        if (!content.open(range.getStart())) {
+            sendContentNotFound(model, response);
+            return;
+        }
+        response.setStatus(SC_PARTIAL_CONTENT);
+        response.setContentType(resourceContentService.getMimeType(primaryVariant));
+        response.setHeader("Content-Range", range.toContentRange(content.getLength()));
+        response.setContentLengthLong(range.getLength());
+        content.copyTo(response.getOutputStream(), range.getLength());
+    }
+
+    // every range is sent as a part of a multipart/byteranges response, see RFC 7233
+    private void sendRanges(GetResourceContentRestModel model, Map.Entry<AuthenticatedResourceProvider, Resource> primaryVariant,
+            ContentSource content, List<ByteRange> ranges, HttpServletResponse response) throws IOException {
+        String mimeType = resourceContentService.getMimeType(primaryVariant);
+        String boundary = UUID.randomUUID().toString();
+        boolean started = false;
+        for (ByteRange range : ranges) {
+            if (!content.open(range.getStart())) {
+                if (!started) {
+                    sendContentNotFound(model, response);
+                }
+                return;
+            }
+            if (!started) {
+                response.setStatus(SC_PARTIAL_CONTENT);
+                response.setContentType(MULTIPART_BYTERANGES + boundary);
+                started = true;
+            }
+            OutputStream outputStream = response.getOutputStream();
+            String partHeaders = "\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + mimeType + "\r\n" +
+                    "Content-Range: " + range.toContentRange(content.getLength()) + "\r\n\r\n";
+            outputStream.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+            content.copyTo(outputStream, range.getLength());
+        }
+        response.getOutputStream().write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void sendContentNotFound(GetResourceContentRestModel model, HttpServletResponse response) throws IOException {
+        LOG.warn("Could not get content for resource '{}' within requested providers", model.getPath());
+        response.sendError(SC_NOT_FOUND);
+    }
+
+    /**
+     * Returns ranges of the content to send, or {@code null} when the whole content should be sent: when ranges are not
+     * requested or are not valid, or the content changed since the version identified by If-Range.
+     */
+    private static List<ByteRange> getRanges(GetResourceContentRestModel model, String eTag, long lastModified,
+            long contentLength) {
+        String range = model.getRange();
+        if (range == null || contentLength < 0) {
+            return null;
+        }
+        String ifRange = model.getIfRange();
+        if (ifRange != null && !isSameVersion(model, ifRange, eTag, lastModified)) {
+            return null;
+        }
+        return ByteRange.parse(range, contentLength);
+    }
+
+    // strong comparison of entity tags, or exact date match
+    private static boolean isSameVersion(GetResourceContentRestModel model, String ifRange, String eTag, long lastModified) {
+        String trimmedIfRange = ifRange.trim();
+        if (trimmedIfRange.startsWith("\"") || trimmedIfRange.startsWith("W/")) {
+            return eTag != null && toEntityTag(eTag).equals(trimmedIfRange);
+        }
+        long ifRangeDate = model.getIfRangeDate();
+        return ifRangeDate >= 0 && lastModified >= 0 && lastModified / 1000 == ifRangeDate / 1000;
+    }
+
+    private static String toEntityTag(String eTag) {
+        return '"' + eTag + '"';
+    }
+
+    // If-Modified-Since is ignored when If-None-Match is sent, see RFC 7232
+    private static boolean isNotModified(GetResourceContentRestModel model, String eTag, long lastModified) {
+        String ifNoneMatch = model.getIfNoneMatch();
+        if (ifNoneMatch != null) {
+            return eTag != null && matchesAny(ifNoneMatch, toEntityTag(eTag));
+        }
+        long ifModifiedSince = model.getIfModifiedSince();
+        // dates of headers have a precision of seconds
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // weak comparison, which is used for If-None-Match
+    private static boolean matchesAny(String entityTags, String entityTag) {
+        for (String candidate : StringUtils.split(entityTags, ',')) {
+            String tag = StringUtils.removeStart(candidate.trim(), "W/");
+            if ("*".equals(tag) || entityTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map.Entry<AuthenticatedResourceProvider, Resource> getPrimaryVariant(GetResourceContentRestModel model) {
         ResourceResolver resourceResolver = model.getResourceResolver();
         String path = model.getPath();
         List<String> providers = model.getProviders();
@@ -0,0 +1,52 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.SlingObject;
+
+@Model(adaptables = SlingHttpServletRequest.class)
+public class GetResourceContentRestModel extends ProvidedResourceRestModel {
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+
+    @SlingObject
+    private SlingHttpServletRequest request;
+
+    public String getIfNoneMatch() {
+        return request.getHeader(IF_NONE_MATCH);
+    }
+
+    /**
+     * Returns value of the If-Modified-Since header in milliseconds, or {@code -1} when it is not set or is not a valid date.
+     */
+    public long getIfModifiedSince() {
+        try {
+            return request.getDateHeader(IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    public String getRange() {
+        return request.getHeader(RANGE);
+    }
+
+    public String getIfRange() {
+        return request.getHeader(IF_RANGE);
+    }
+
+    /**
+     * Returns value of the If-Range header in milliseconds, or {@code -1} when it is not set or is an entity tag.
+     */
+    public long getIfRangeDate() {
+        try {
+            return request.getDateHeader(IF_RANGE);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import pl.ds.websight.resourcebrowser.dto.ResourceListDto;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JSON output of streaming actions. The REST framework does not expose its object mapper to free form responses, so streaming
+ * actions share this one instead of creating their own.
+ */
+final class JsonStreaming {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper RESOURCE_FIELDS_MAPPER = OBJECT_MAPPER.copy()
+            .addMixIn(ResourceListDto.class, ResourceFields.class);
+
+    private JsonStreaming() {
+        // no instances
+    }
+
+    /**
+     * Prepares the response for not cached JSON and returns a generator writing to it.
+     */
+    static JsonGenerator createGenerator(HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        // Don't cache the results
+        response.setHeader("Cache-Control", "no-store");
+        return OBJECT_MAPPER.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+    }
+
+    /**
+     * Writes fields of the resource into the current object, except its children and their cursor, which are streamed after.
+     */
+    static void writeResourceFields(JsonGenerator generator, ResourceListDto resource) throws IOException {
+        ObjectNode fields = RESOURCE_FIELDS_MAPPER.valueToTree(resource);
+        Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            generator.writeFieldName(field.getKey());
+            generator.writeTree(field.getValue());
+        }
+    }
+
+    @JsonIgnoreProperties({ "children", "nextCursor" })
+    private abstract static class ResourceFields {
+    }
+
+}
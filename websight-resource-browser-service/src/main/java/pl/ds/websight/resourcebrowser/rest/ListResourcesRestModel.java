@@ -1,9 +1,12 @@
 package pl.ds.websight.resourcebrowser.rest;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.models.annotations.Model;
 import pl.ds.websight.request.parameters.support.annotations.RequestParameter;
 
+import javax.annotation.PostConstruct;
 import javax.validation.constraints.NotEmpty;
 import java.util.List;
 
@@ -14,8 +17,42 @@ public class ListResourcesRestModel extends ProvidersBaseRestModel {
     @NotEmpty(message = "Paths cannot be empty")
     private List<String> paths;
 
+    @RequestParameter
+    private String offset;
+
+    @RequestParameter
+    private String limit;
+
+    @RequestParameter
+    private String cursor;
+
+    private int offsetValue;
+
+    private int limitValue;
+
+    @PostConstruct
+    private void init() {
+        offsetValue = Math.max(NumberUtils.toInt(offset), 0);
+        limitValue = Math.max(NumberUtils.toInt(limit), 0);
+    }
+
     public List<String> getPaths() {
         return paths;
     }
 
+    public int getOffset() {
+        return offsetValue;
+    }
+
+    /**
+     * Maximum number of children listed for each path, 0 when children should not be limited.
+     */
+    public int getLimit() {
+        return limitValue;
+    }
+
+    public String getCursor() {
+        return StringUtils.defaultIfBlank(cursor, null);
+    }
+
 }
@@ -1,9 +1,13 @@
 package pl.ds.websight.resourcebrowser.rest;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.models.annotations.Model;
 import pl.ds.websight.request.parameters.support.annotations.RequestParameter;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
 
+import javax.annotation.PostConstruct;
 import javax.validation.constraints.NotNull;
 
 @Model(adaptables = SlingHttpServletRequest.class)
@@ -13,8 +17,73 @@ public class QuickSearchRestModel extends ProvidersBaseRestModel {
     @RequestParameter
     private String phrase;
 
+    @RequestParameter
+    private String mode;
+
+    @RequestParameter
+    private String scope;
+
+    @RequestParameter
+    private String clientId;
+
+    @RequestParameter
+    private String offset;
+
+    @RequestParameter
+    private String limit;
+
+    @RequestParameter
+    private String cursor;
+
+    private int offsetValue;
+
+    private int limitValue;
+
+    @PostConstruct
+    private void init() {
+        offsetValue = Math.max(NumberUtils.toInt(offset), 0);
+        limitValue = Math.max(NumberUtils.toInt(limit), 0);
+    }
+
     public String getPhrase() {
         return phrase;
     }
 
+    /**
+     * Search mode, see {@link QuickSearchService#MODE_PATH} and {@link QuickSearchService#MODE_CONTENT}.
+     */
+    public String getMode() {
+        return StringUtils.defaultIfBlank(mode, QuickSearchService.MODE_PATH);
+    }
+
+    /**
+     * Path of the resource below which resources are searched, {@code null} when the whole tree should be searched.
+     */
+    public String getScope() {
+        String scopePath = StringUtils.removeEnd(StringUtils.trimToEmpty(scope), "/");
+        return scopePath.startsWith("/") ? scopePath : null;
+    }
+
+    /**
+     * Identifies a client issuing consecutive searches, e.g. a browser tab; a newer search of the client cancels the older one.
+     */
+    public String getClientId() {
+        return StringUtils.defaultIfBlank(clientId, null);
+    }
+
+    public int getOffset() {
+        return offsetValue;
+    }
+
+    /**
+     * Maximum number of returned results, 0 when the default limit should be used.
+     */
+    public int getLimit() {
+        return limitValue;
+    }
+
+    public String getCursor() {
+        return StringUtils.defaultIfBlank(cursor, null);
+    }
+
 }
@@ -0,0 +1,68 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.dto.QuickSearchDto;
+import pl.ds.websight.resourcebrowser.service.impl.QuickSearchQuery;
+import pl.ds.websight.resourcebrowser.service.impl.ResourceQuickSearchService;
+import pl.ds.websight.rest.framework.FreeFormResponse;
+import pl.ds.websight.rest.framework.RestAction;
+import pl.ds.websight.rest.framework.RestActionResult;
+import pl.ds.websight.rest.framework.annotations.SlingAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static pl.ds.websight.rest.framework.annotations.SlingAction.HttpMethod.GET;
+
+/**
+ * Streaming variant of {@link QuickSearchRestAction}. Every result is written and flushed as soon as it is resolved, followed
+ * by providers data and the cursor of the next page.
+ */
+@Component
+@SlingAction(GET)
+public class StreamQuickSearchRestAction extends AbstractRestAction<QuickSearchRestModel, FreeFormResponse>
+        implements RestAction<QuickSearchRestModel, FreeFormResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamQuickSearchRestAction.class);
+
+
+    @Reference
+    private ResourceQuickSearchService resourceQuickSearchService;
+
+    @Override
+    protected RestActionResult<FreeFormResponse> performAction(QuickSearchRestModel model) {
+        return RestActionResult.freeFormResponse(response -> {
+            try (JsonGenerator generator = JsonStreaming.createGenerator(response)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("results");
+                QuickSearchQuery query = new QuickSearchQuery(model.getPhrase(), model.getMode(), model.getScope());
+                QuickSearchDto quickSearchDto = resourceQuickSearchService.search(model.getProviders(), model.getResourceResolver(),
+                        query, model.getOffset(), model.getLimit(), model.getCursor(), model.getClientId(), result -> {
+                            try {
+                                generator.writeObject(result);
+                                generator.flush();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                generator.writeEndArray();
+                generator.writeObjectField("data", quickSearchDto.getData());
+                generator.writeStringField("nextCursor", quickSearchDto.getNextCursor());
+                generator.writeEndObject();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not stream quick search results of '{}'", model.getPhrase(), e);
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    protected String getUnexpectedErrorMessage() {
+        return Messages.QUICK_SEARCH_ERROR;
+    }
+
+}
@@ -0,0 +1,109 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.dto.ResourceListDto;
+import pl.ds.websight.resourcebrowser.resourceprovider.ChildrenWindow;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
+import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
+import pl.ds.websight.resourcebrowser.service.impl.ResourceListService;
+import pl.ds.websight.rest.framework.FreeFormResponse;
+import pl.ds.websight.rest.framework.RestAction;
+import pl.ds.websight.rest.framework.RestActionResult;
+import pl.ds.websight.rest.framework.annotations.SlingAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static pl.ds.websight.rest.framework.annotations.SlingAction.HttpMethod.GET;
+
+/**
+ * Streaming variant of {@link ListResourcesRestAction}. Writes the JSON array of listed resources directly to the response,
+ * serializing every child as soon as it is computed instead of building the whole tree in memory first.
+ */
+@Component
+@SlingAction(GET)
+public class StreamResourcesRestAction extends AbstractRestAction<ListResourcesRestModel, FreeFormResponse>
+        implements RestAction<ListResourcesRestModel, FreeFormResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamResourcesRestAction.class);
+
+    private static final String CHILDREN_FIELD = "children";
+    private static final String NEXT_CURSOR_FIELD = "nextCursor";
+    private static final int FLUSH_INTERVAL = 100;
+
+    @Reference
+    private ResourceBrowserService resourceBrowserService;
+
+    @Reference
+    private ResourceListService resourceListService;
+
+    @Override
+    protected RestActionResult<FreeFormResponse> performAction(ListResourcesRestModel model) {
+        return RestActionResult.freeFormResponse(response -> {
+            ResourceResolver resourceResolver = model.getResourceResolver();
+            try (JsonGenerator generator = JsonStreaming.createGenerator(response)) {
+                generator.writeStartArray();
+                if (model.getPaths().size() > 1) {
+                    // paths are listed in parallel, each is written once it and all paths before it are complete
+                    resourceListService.listResources(model.getProviders(), resourceResolver, model.getPaths(), model.getOffset(),
+                            model.getLimit(), model.getCursor(), resourceListDto -> {
+                                try {
+                                    generator.writeObject(resourceListDto);
+                                    generator.flush();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+                } else {
+                    ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(
+                            model.getProviders(), resourceResolver);
+                    for (ResourceWrapper parentProvidedResource : resourceListService.getRootResources(providersControl,
+                            resourceResolver, model.getPaths())) {
+                        writeResource(generator, parentProvidedResource, model, providersControl);
+                    }
+                }
+                generator.writeEndArray();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not stream resources {}", model.getPaths(), e);
+                throw e;
+            }
+        });
+    }
+
+    private void writeResource(JsonGenerator generator, ResourceWrapper parentProvidedResource, ListResourcesRestModel model,
+            ResourceProvidersControl providersControl) throws IOException {
+        ResourceResolver resourceResolver = model.getResourceResolver();
+        ResourceListDto resourceListDto = resourceListService.createListResourcesItem(parentProvidedResource, resourceResolver,
+                providersControl);
+        generator.writeStartObject();
+        JsonStreaming.writeResourceFields(generator, resourceListDto);
+        generator.flush();
+
+        ChildrenWindow childrenWindow = providersControl.listChildren(parentProvidedResource, model.getOffset(), model.getLimit(),
+                model.getCursor());
+        generator.writeArrayFieldStart(CHILDREN_FIELD);
+        int written = 0;
+        for (ResourceWrapper providedResource : childrenWindow.getChildren()) {
+            generator.writeObject(resourceListService.createListResourcesItem(providedResource, resourceResolver, providersControl));
+            if (++written % FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        }
+        generator.writeEndArray();
+        generator.writeStringField(NEXT_CURSOR_FIELD, childrenWindow.getNextCursor());
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    @Override
+    protected String getUnexpectedErrorMessage() {
+        return Messages.LIST_RESOURCES_ERROR;
+    }
+
+}
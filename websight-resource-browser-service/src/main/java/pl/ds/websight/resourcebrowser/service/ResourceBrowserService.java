@@ -12,4 +12,9 @@ public interface ResourceBrowserService {
 
     List<ResourceProviderInfo> listAvailableProviders();
 
+    /**
+     * Returns information of every registered instance of the provider, one for each of its roots.
+     */
+    List<ResourceProviderInfo> listProviderInstances(String providerName);
+
 }
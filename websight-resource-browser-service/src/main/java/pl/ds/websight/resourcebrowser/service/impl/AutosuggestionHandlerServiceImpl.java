@@ -15,9 +15,8 @@ import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
 import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
 import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +39,9 @@ public class AutosuggestionHandlerServiceImpl implements AutosuggestionService {
     @Reference
     private ResourceBrowserService resourceBrowserService;
 
+    @Reference
+    private ChildNameIndexCache childNameIndexCache;
+
     @Override
     public String getType() {
         return AUTOSUGGESTION_SERVICE_TYPE;
@@ -59,8 +61,9 @@ public class AutosuggestionHandlerServiceImpl implements AutosuggestionService {
             return SuggestionListDto.buildEmpty();
         }
 
-        ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(
-                getProvidersNames(providersParameter), resourceResolver);
+        List<String> providersNames = getProvidersNames(providersParameter);
+        ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(providersNames,
+                resourceResolver);
 
         ResourceWrapper providedParent = providersControl.getResource(resourceResolver, basePath);
         if (providedParent == null) {
@@ -71,7 +74,10 @@ public class AutosuggestionHandlerServiceImpl implements AutosuggestionService {
         int limit = Integer.parseInt(StringUtils.defaultIfBlank(getParamStringValue(requestParameterMap, REQUEST_PARAMETER_LIMIT), "10"));
         String query = StringUtils.defaultIfBlank(getParamStringValue(requestParameterMap, REQUEST_PARAMETER_QUERY), "");
 
-        return createSuggestionList(providersControl, providedParent, query, Math.min(limit, MAX_RESULTS_SIZE));
+        ChildNameIndex childNameIndex = childNameIndexCache.get(providersNames, basePath, resourceResolver,
+                () -> ChildNameIndex.of(providersControl.listChildrenNames(providedParent)));
+        return createSuggestionList(providersControl, resourceResolver, childNameIndex, basePath, query,
+                Math.min(limit, MAX_RESULTS_SIZE));
     }
 
     private static List<String> getProvidersNames(RequestParameter[] providersParameter) {
@@ -81,16 +87,21 @@ public class AutosuggestionHandlerServiceImpl implements AutosuggestionService {
     }
 
 
-    private static SuggestionListDto createSuggestionList(ResourceProvidersControl providersControl, ResourceWrapper providedParent,
-                                                          String query, int limit) {
-        List<SuggestionDto> suggestions = providersControl.listChildren(providedParent).stream()
-                .filter(child -> StringUtils.startsWith(child.getName(), query))
-                .map(providedResource -> createSuggestion(providedResource, providersControl))
-                .sorted(Comparator.comparing(SuggestionDto::getValue))
-                .limit(limit + 1L)
-                .collect(toList());
-        boolean hasMore = suggestions.size() > limit;
-        return SuggestionListDto.buildFromSuggestions(hasMore ? suggestions.subList(0, limit) : suggestions, hasMore);
+    // children are resolved and checked only for the names which make it to the suggestions
+    private static SuggestionListDto createSuggestionList(ResourceProvidersControl providersControl,
+            ResourceResolver resourceResolver, ChildNameIndex childNameIndex, String basePath, String query, int limit) {
+        List<String> names = childNameIndex.findByPrefix(query, limit + 1);
+        boolean hasMore = names.size() > limit;
+        List<SuggestionDto> suggestions = new ArrayList<>();
+        for (String name : hasMore ? names.subList(0, limit) : names) {
+            ResourceWrapper providedResource = providersControl.getResource(resourceResolver,
+                    StringUtils.appendIfMissing(basePath, "/") + name);
+            // resource could have been removed since the index was built
+            if (providedResource != null) {
+                suggestions.add(createSuggestion(providedResource, providersControl));
+            }
+        }
+        return SuggestionListDto.buildFromSuggestions(suggestions, hasMore);
     }
 
     private static SuggestionDto createSuggestion(ResourceWrapper providedResource, ResourceProvidersControl providersControl) {
@@ -0,0 +1,50 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers statistics of caches in the platform MBean server, so that they can be observed while the system runs.
+ */
+final class CacheStatistics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheStatistics.class);
+
+    private static final String DOMAIN = "pl.ds.websight.resourcebrowser";
+
+    private CacheStatistics() {
+        // no instances
+    }
+
+    /**
+     * Returns name of the registered MBean, or {@code null} when it could not be registered.
+     */
+    static ObjectName register(String cacheName, CacheStatisticsMBean statistics) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN, "name", ObjectName.quote(cacheName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(statistics, CacheStatisticsMBean.class), objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOG.warn("Could not register statistics of {}", cacheName, e);
+        }
+        return null;
+    }
+
+    static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOG.warn("Could not unregister {}", objectName, e);
+        }
+    }
+
+}
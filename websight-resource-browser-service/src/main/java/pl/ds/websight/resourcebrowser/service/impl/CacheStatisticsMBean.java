@@ -0,0 +1,16 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+/**
+ * Statistics of a cache, exposed over JMX by {@link CacheStatistics}.
+ */
+public interface CacheStatisticsMBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    double getHitRatio();
+
+}
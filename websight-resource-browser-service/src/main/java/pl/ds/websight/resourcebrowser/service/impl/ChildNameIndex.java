@@ -0,0 +1,95 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted names of children of a resource, kept as a separate run for every provider serving the children. Children with a name
+ * prefix are found by a binary search in every run, and the matching ranges are merged until enough names are found.
+ */
+final class ChildNameIndex {
+
+    private final List<String[]> runs;
+
+    private ChildNameIndex(List<String[]> runs) {
+        this.runs = runs;
+    }
+
+    static ChildNameIndex of(List<List<String>> childrenNames) {
+        List<String[]> runs = new ArrayList<>();
+        for (List<String> names : childrenNames) {
+            String[] run = names.toArray(new String[0]);
+            // providers returning children in lexical order need no sorting
+            if (!isSorted(run)) {
+                Arrays.sort(run);
+            }
+            if (run.length > 0) {
+                runs.add(run);
+            }
+        }
+        return new ChildNameIndex(runs);
+    }
+
+    private static boolean isSorted(String[] run) {
+        for (int i = 1; i < run.length; i++) {
+            if (run[i - 1].compareTo(run[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns at most {@code limit} distinct names starting with the prefix, in lexical order.
+     */
+    List<String> findByPrefix(String prefix, int limit) {
+        PriorityQueue<RunCursor> cursors = new PriorityQueue<>(Comparator.comparing(RunCursor::getName));
+        for (String[] run : runs) {
+            int index = Arrays.binarySearch(run, prefix);
+            RunCursor cursor = new RunCursor(run, index >= 0 ? index : -index - 1);
+            if (cursor.matches(prefix)) {
+                cursors.add(cursor);
+            }
+        }
+        List<String> found = new ArrayList<>();
+        String lastName = null;
+        while (!cursors.isEmpty() && found.size() < limit) {
+            RunCursor cursor = cursors.poll();
+            String name = cursor.getName();
+            // names served by several providers are next to each other
+            if (!name.equals(lastName)) {
+                found.add(name);
+                lastName = name;
+            }
+            cursor.position++;
+            if (cursor.matches(prefix)) {
+                cursors.add(cursor);
+            }
+        }
+        return found;
+    }
+
+    private static final class RunCursor {
+
+        private final String[] run;
+        private int position;
+
+        private RunCursor(String[] run, int position) {
+            this.run = run;
+            this.position = position;
+        }
+
+        private String getName() {
+            return run[position];
+        }
+
+        private boolean matches(String prefix) {
+            return position < run.length && run[position].startsWith(prefix);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of {@link ChildNameIndex child name indexes}, keyed by user, providers and parent path, so that an index is reused
+ * by the following keystrokes of autosuggestion. Indexes are dropped when a child of their parent is added or removed and expire
+ * after a short time, since not every provider reports changes.
+ */
+@Component(service = { ChildNameIndexCache.class, ResourceChangeListener.class }, property = {
+        ResourceChangeListener.PATHS + "=/",
+        ResourceChangeListener.CHANGES + "=ADDED",
+        ResourceChangeListener.CHANGES + "=REMOVED"
+})
+public class ChildNameIndexCache implements ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final int MAX_ENTRIES = 100;
+    private static final long TTL = TimeUnit.SECONDS.toMillis(30);
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns cached index of children of the parent or loads it. Index loaded while a change happened is not cached.
+     */
+    ChildNameIndex get(List<String> providers, String parentPath, ResourceResolver resourceResolver,
+            Supplier<ChildNameIndex> loader) {
+        String userId = resourceResolver.getUserID();
+        if (userId == null) {
+            return loader.get();
+        }
+        Key key = new Key(userId, providers, parentPath);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() <= entry.expiresAt) {
+                return entry.index;
+            }
+            // the entry becomes current once it is loaded; a change of the parent meanwhile removes it
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+        entry.index = loader.get();
+        entry.expiresAt = System.currentTimeMillis() + TTL;
+        return entry.index;
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        synchronized (entries) {
+            for (ResourceChange change : changes) {
+                String parentPath = ResourceUtil.getParent(change.getPath());
+                entries.keySet().removeIf(key -> key.parentPath.equals(parentPath));
+            }
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+
+        private volatile ChildNameIndex index;
+        private volatile long expiresAt;
+
+    }
+
+    private static final class Key {
+
+        private final String userId;
+        private final List<String> providers;
+        private final String parentPath;
+
+        private Key(String userId, List<String> providers, String parentPath) {
+            this.userId = userId;
+            this.providers = providers;
+            this.parentPath = parentPath;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return userId.equals(key.userId) && providers.equals(key.providers) && parentPath.equals(key.parentPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, providers, parentPath);
+        }
+
+    }
+
+}
@@ -6,7 +6,9 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import pl.ds.websight.resourcebrowser.api.ResourceContentProvider;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 @Component(service = DefaultResourceContentProvider.class)
 public class DefaultResourceContentProvider implements ResourceContentProvider {
@@ -44,6 +46,46 @@ public class DefaultResourceContentProvider implements ResourceContentProvider {
         return mimeType;
     }
 
+    // resources of the file system provider adapt to their files
+    @Override
+    public Path getContentFile(Resource resource) {
+        if (resource != null && hasContent(resource)) {
+            File file = resource.adaptTo(File.class);
+            if (file != null && file.isFile()) {
+                return file.toPath();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getContentLength(Resource resource) {
+        if (resource != null && hasContent(resource)) {
+            long contentLength = resource.getResourceMetadata().getContentLength();
+            return contentLength >= 0 ? contentLength : -1;
+        }
+        return -1;
+    }
+
+    // providers report modification time and length of the underlying file, e.g. of a bundle entry or a file system file
+    @Override
+    public String getETag(Resource resource) {
+        long lastModified = getLastModified(resource);
+        if (lastModified < 0) {
+            return null;
+        }
+        return Long.toHexString(lastModified) + '-' + Long.toHexString(resource.getResourceMetadata().getContentLength());
+    }
+
+    @Override
+    public long getLastModified(Resource resource) {
+        if (resource != null && hasContent(resource)) {
+            long modificationTime = resource.getResourceMetadata().getModificationTime();
+            return modificationTime > 0 ? modificationTime : -1;
+        }
+        return -1;
+    }
+
     @Override
     public boolean hasContent(Resource resource) {
         return "nt:file".equals(resource.getResourceType());
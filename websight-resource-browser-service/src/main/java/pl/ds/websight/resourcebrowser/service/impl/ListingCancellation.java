@@ -0,0 +1,23 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of a listing. Workers are never interrupted, since an interrupt during a repository read may close
+ * its file channels; instead the listing checks {@link #check()} before every child and stops once it is cancelled.
+ */
+final class ListingCancellation {
+
+    private volatile boolean cancelled;
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    void check() {
+        if (cancelled) {
+            throw new CancellationException("Listing was cancelled");
+        }
+    }
+
+}
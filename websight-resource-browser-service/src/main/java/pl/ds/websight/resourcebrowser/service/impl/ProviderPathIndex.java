@@ -0,0 +1,175 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import pl.ds.websight.resourcebrowser.api.PathNameIndex;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchScoring;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory index of resource paths of a single provider, kept in a {@link PathNameIndex} and searched the same way as the JCR
+ * path index. A crawl builds a new index, which replaces the current one once it is complete, so that the index can be
+ * searched meanwhile.
+ */
+final class ProviderPathIndex implements QuickSearchService {
+
+    private static final String WARNING_MESSAGE = "Indexing resource paths, results may be incomplete...";
+    private static final String SHORT_TERM_MESSAGE = "Type at least " + PathNameIndex.MIN_TERM_LENGTH
+            + " characters of a name to search all resources";
+    private static final int CANDIDATES_LIMIT = 1000;
+
+    private static final Comparator<QuickSearchHit> BY_SCORE = Comparator.comparingDouble(QuickSearchHit::getScore);
+
+    // guards updates of the index and of the changes tracked during a crawl
+    private final Object lock = new Object();
+    private volatile PathNameIndex paths = new PathNameIndex();
+    // changes reported during a crawl, which may have been missed by it
+    private final Set<String> addedDuringCrawl = new HashSet<>();
+    private final Set<String> removedDuringCrawl = new HashSet<>();
+    private final AtomicBoolean crawling = new AtomicBoolean();
+    private volatile List<String> roots = Collections.emptyList();
+    private volatile List<String> rootsBeingCrawled = Collections.emptyList();
+    private volatile long crawledAt;
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase) {
+        return search(resourceResolver, phrase, null);
+    }
+
+    @Override
+    public QuickSearchResults search(ResourceResolver resourceResolver, String phrase, String scopePath) {
+        List<String> terms = Arrays.asList(StringUtils.split(StringUtils.defaultString(phrase), QuickSearchScoring.TERM_SEPARATORS));
+        Map<String, Object> data = new HashMap<>();
+        if (crawledAt == 0) {
+            data.put("warning", WARNING_MESSAGE);
+        } else if (scopePath == null && !terms.isEmpty() && terms.get(terms.size() - 1).length() < PathNameIndex.MIN_TERM_LENGTH) {
+            data.put("warning", SHORT_TERM_MESSAGE);
+        }
+        List<QuickSearchHit> hits = new ArrayList<>();
+        for (String path : paths.search(terms, scopePath, CANDIDATES_LIMIT)) {
+            // ancestors of the roots are in the index too, but they are not served by the provider
+            if (covers(path)) {
+                hits.add(new QuickSearchHit(path, QuickSearchScoring.score(path, phrase)));
+            }
+        }
+        hits.sort(BY_SCORE.reversed());
+        return new QuickSearchResults(hits.iterator(), data);
+    }
+
+    void add(String path) {
+        synchronized (lock) {
+            paths.add(path);
+            if (crawling.get()) {
+                addedDuringCrawl.add(path);
+                removedDuringCrawl.remove(path);
+            }
+        }
+    }
+
+    void remove(String path) {
+        synchronized (lock) {
+            paths.remove(path);
+            if (crawling.get()) {
+                addedDuringCrawl.removeIf(addedPath -> isSameOrDescendant(addedPath, path));
+                removedDuringCrawl.add(path);
+            }
+        }
+    }
+
+    /**
+     * Replaces the index with one of the crawled paths. Paths added during the crawl are kept and paths removed during it are
+     * left out, as the crawl may have missed the changes.
+     */
+    void update(Set<String> crawledPaths, List<String> crawledRoots) {
+        synchronized (lock) {
+            PathNameIndex crawledIndex = new PathNameIndex();
+            for (String path : crawledPaths) {
+                if (!isRemovedDuringCrawl(path)) {
+                    crawledIndex.add(path);
+                }
+            }
+            addedDuringCrawl.forEach(crawledIndex::add);
+            addedDuringCrawl.clear();
+            removedDuringCrawl.clear();
+            paths = crawledIndex;
+        }
+        roots = crawledRoots;
+        crawledAt = System.currentTimeMillis();
+    }
+
+    private boolean isRemovedDuringCrawl(String path) {
+        for (String current = path; current != null; current = ResourceUtil.getParent(current)) {
+            if (removedDuringCrawl.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        synchronized (lock) {
+            paths.clear();
+        }
+    }
+
+    // changes below roots being crawled are tracked too, so that they are not lost by the first crawl
+    boolean covers(String path) {
+        return covers(roots, path) || crawling.get() && covers(rootsBeingCrawled, path);
+    }
+
+    private static boolean covers(List<String> rootPaths, String path) {
+        for (String root : rootPaths) {
+            if (isSameOrDescendant(path, root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the index is crawled again when the provider is registered at other roots or when it gets old
+    boolean isStale(List<String> currentRoots, long maxAge) {
+        return !roots.equals(currentRoots) || System.currentTimeMillis() - crawledAt > maxAge;
+    }
+
+    boolean startCrawl(List<String> rootsToCrawl) {
+        synchronized (lock) {
+            if (!crawling.compareAndSet(false, true)) {
+                return false;
+            }
+            rootsBeingCrawled = rootsToCrawl;
+            return true;
+        }
+    }
+
+    void finishCrawl() {
+        synchronized (lock) {
+            crawling.set(false);
+            rootsBeingCrawled = Collections.emptyList();
+            addedDuringCrawl.clear();
+            removedDuringCrawl.clear();
+        }
+    }
+
+    int getSize() {
+        return paths.getSize();
+    }
+
+    static boolean isSameOrDescendant(String path, String parentPath) {
+        return path.equals(parentPath) || path.startsWith(StringUtils.appendIfMissing(parentPath, "/"));
+    }
+
+}
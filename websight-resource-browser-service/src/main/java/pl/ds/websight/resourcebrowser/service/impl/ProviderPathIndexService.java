@@ -0,0 +1,243 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProviderInfo;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
+import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Path quick search of providers which have no dedicated {@link QuickSearchService}, e.g. bundle or file system providers.
+ * Paths of every provider are kept in a {@link ProviderPathIndex}, built by a background crawl of the provider roots with
+ * {@code listChildren}. Crawls are limited in depth and size and pause after every batch of listings, so that they do not
+ * saturate the provider; the limits are configurable. Indexes are updated with reported resource changes and crawled again once
+ * they get old. Only providers which serve the same resources to every user are indexed, so that an index can be shared by all
+ * users.
+ */
+@Component(service = { ProviderPathIndexService.class, ResourceChangeListener.class }, property = {
+        ResourceChangeListener.PATHS + "=/",
+        ResourceChangeListener.CHANGES + "=ADDED",
+        ResourceChangeListener.CHANGES + "=REMOVED"
+})
+@Designate(ocd = ProviderPathIndexService.Config.class)
+public class ProviderPathIndexService implements ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProviderPathIndexService.class);
+
+    private static final String NO_AUTHENTICATION = "no";
+
+    private final Map<String, ProviderPathIndex> indexes = new ConcurrentHashMap<>();
+
+    @Reference
+    private ResourceBrowserService resourceBrowserService;
+
+    private ExecutorService executor;
+    private Config config;
+    // crawls are stopped cooperatively, since an interrupt during a provider read may close its file channels
+    private volatile boolean stopped;
+
+    @Activate
+    protected void activate(Config config) {
+        this.config = config;
+        stopped = false;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websight-resource-browser-provider-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.warn("Provider path index crawl did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        indexes.values().forEach(ProviderPathIndex::clear);
+        indexes.clear();
+    }
+
+    /**
+     * Returns search of the provider paths, or {@code null} when the provider cannot be indexed. Index which is missing or old is
+     * crawled in the background with a clone of the given resource resolver, meanwhile searches use its current state.
+     */
+    QuickSearchService getQuickSearchService(String providerName, ResourceResolver resourceResolver) {
+        List<ResourceProviderInfo> instances = resourceBrowserService.listProviderInstances(providerName);
+        if (instances.isEmpty() || !instances.stream().allMatch(ProviderPathIndexService::isIndexable)) {
+            return null;
+        }
+        List<String> roots = instances.stream()
+                .map(ResourceProviderInfo::getRoot)
+                .sorted()
+                .collect(toList());
+        ProviderPathIndex index = indexes.computeIfAbsent(providerName, name -> new ProviderPathIndex());
+        if (index.isStale(roots, TimeUnit.MINUTES.toMillis(config.maxIndexAge())) && index.startCrawl(roots)) {
+            submitCrawl(providerName, index, roots, resourceResolver);
+        }
+        return index;
+    }
+
+    private static boolean isIndexable(ResourceProviderInfo info) {
+        return info.getAuthenticate() == null || NO_AUTHENTICATION.equals(info.getAuthenticate());
+    }
+
+    private void submitCrawl(String providerName, ProviderPathIndex index, List<String> roots, ResourceResolver resourceResolver) {
+        ResourceResolver crawlResolver;
+        try {
+            crawlResolver = resourceResolver.clone(null);
+        } catch (LoginException e) {
+            LOG.warn("Could not clone resource resolver to index {}", providerName, e);
+            index.finishCrawl();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try (ResourceResolver resolver = crawlResolver) {
+                    crawl(providerName, index, roots, resolver);
+                } finally {
+                    index.finishCrawl();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Could not index {}, indexing is stopped", providerName);
+            crawlResolver.close();
+            index.finishCrawl();
+        }
+    }
+
+    private void crawl(String providerName, ProviderPathIndex index, List<String> roots, ResourceResolver resourceResolver) {
+        long start = System.currentTimeMillis();
+        ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(
+                Collections.singletonList(providerName), resourceResolver);
+        Set<String> paths = new HashSet<>();
+        Deque<ResourceWrapper> toVisit = new ArrayDeque<>();
+        for (String root : roots) {
+            ResourceWrapper rootResource = providersControl.getResource(resourceResolver, root);
+            if (rootResource != null) {
+                toVisit.push(rootResource);
+            }
+        }
+        int listings = 0;
+        while (!toVisit.isEmpty() && paths.size() < config.maxPaths()) {
+            if (stopped) {
+                return;
+            }
+            ResourceWrapper resource = toVisit.pop();
+            if (!paths.add(resource.getPath()) || getDepth(resource.getPath(), roots) >= config.maxDepth()) {
+                continue;
+            }
+            for (ResourceWrapper child : providersControl.listChildren(resource, 0, config.maxChildren(), null).getChildren()) {
+                // links to roots registered below are crawled from these roots
+                if (!child.getVariants().isEmpty()) {
+                    toVisit.push(child);
+                }
+            }
+            if (++listings % config.listingsPerBatch() == 0 && !pause(config.batchPause())) {
+                return;
+            }
+        }
+        if (paths.size() >= config.maxPaths()) {
+            LOG.warn("Index of {} is limited to {} paths", providerName, config.maxPaths());
+        }
+        index.update(paths, roots);
+        LOG.info("Path index of {} with {} resources built in {} ms", providerName, index.getSize(),
+                System.currentTimeMillis() - start);
+    }
+
+    private static int getDepth(String path, List<String> roots) {
+        int depth = Integer.MAX_VALUE;
+        for (String root : roots) {
+            if (ProviderPathIndex.isSameOrDescendant(path, root)) {
+                String relativePath = StringUtils.removeStart(path, StringUtils.appendIfMissing(root, "/"));
+                depth = Math.min(depth, path.equals(root) ? 0 : StringUtils.countMatches(relativePath, '/') + 1);
+            }
+        }
+        return depth;
+    }
+
+    private static boolean pause(long batchPause) {
+        try {
+            Thread.sleep(batchPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        for (ResourceChange change : changes) {
+            for (ProviderPathIndex index : indexes.values()) {
+                if (index.covers(change.getPath())) {
+                    if (change.getType() == ChangeType.ADDED) {
+                        index.add(change.getPath());
+                    } else if (change.getType() == ChangeType.REMOVED) {
+                        index.remove(change.getPath());
+                    }
+                }
+            }
+        }
+    }
+
+    @ObjectClassDefinition(name = "WebSight Resource Browser Provider Path Index",
+            description = "Limits of crawls indexing paths of resource providers without a dedicated quick search")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Max depth", description = "Depth below provider roots up to which resources are indexed")
+        int maxDepth() default 20;
+
+        @AttributeDefinition(name = "Max children", description = "Number of children of a resource which are indexed")
+        int maxChildren() default 10_000;
+
+        @AttributeDefinition(name = "Max paths", description = "Number of paths indexed for a provider")
+        int maxPaths() default 500_000;
+
+        @AttributeDefinition(name = "Listings per batch", description = "Number of listed resources after which a crawl pauses")
+        int listingsPerBatch() default 200;
+
+        @AttributeDefinition(name = "Batch pause", description = "Pause of a crawl after every batch, in milliseconds")
+        long batchPause() default 20;
+
+        @AttributeDefinition(name = "Max index age", description = "Age in minutes after which an index is crawled again")
+        long maxIndexAge() default 10;
+
+    }
+
+}
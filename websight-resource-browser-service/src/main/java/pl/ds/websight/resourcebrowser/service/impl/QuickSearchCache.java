@@ -0,0 +1,481 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchScoring;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * LRU cache of quick search results, keyed by provider, mode, scope, normalized phrase and user. Hits are recorded as they are
+ * read by the consumer of the search, so the cache never reads more hits than the search itself. Resource changes reported
+ * through Sling observation drop entries which could be affected: those containing a changed path and, for path searches, those
+ * whose phrase terms occur in a changed path. Since any added or changed resource may match a content search, such changes drop
+ * all content search entries. Results of providers which do not report changes expire after a short time. Hit ratio and
+ * evictions are exposed over JMX.
+ */
+@Component(service = { QuickSearchCache.class, ResourceChangeListener.class }, property = {
+        ResourceChangeListener.PATHS + "=/",
+        ResourceChangeListener.CHANGES + "=ADDED",
+        ResourceChangeListener.CHANGES + "=REMOVED",
+        ResourceChangeListener.CHANGES + "=CHANGED"
+})
+public class QuickSearchCache implements ResourceChangeListener, ExternalResourceChangeListener, CacheStatisticsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuickSearchCache.class);
+
+    private static final int MAX_ENTRIES = 500;
+    private static final int MAX_CACHED_HITS = 200;
+    private static final int MAX_REMOVED_PATHS = 10_000;
+    private static final long OBSERVED_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final long UNOBSERVED_TTL = TimeUnit.SECONDS.toMillis(30);
+    private static final String WARNING = "warning";
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // recently removed paths, by sequence number of the removal, so that hits read after their removal are not recorded
+    private final Map<String, Long> removedPaths = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() > MAX_REMOVED_PATHS) {
+                forgottenRemovals = eldest.getValue();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // guarded by entries
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // guarded by removedPaths
+    private long removals;
+    private long forgottenRemovals;
+
+    private ObjectName statisticsName;
+
+    @Activate
+    protected void activate() {
+        statisticsName = CacheStatistics.register("Quick search cache", this);
+    }
+
+    /**
+     * Returns cached results or {@code null} when there are none for the given search.
+     */
+    CachedResults get(String provider, QuickSearchQuery query, ResourceResolver resourceResolver) {
+        Key key = Key.of(provider, query, resourceResolver);
+        if (key == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(key);
+                evictions++;
+                entry = null;
+            }
+            if (entry == null || entry.data == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return entry.getResults();
+    }
+
+    /**
+     * Runs the search and caches its first hits as they are read from the returned results. The entry is registered before
+     * the search runs, so that changes made meanwhile drop it.
+     */
+    QuickSearchResults search(String provider, QuickSearchQuery query, boolean observed, ResourceResolver resourceResolver,
+            Supplier<QuickSearchResults> search) {
+        Key key = Key.of(provider, query, resourceResolver);
+        if (key == null) {
+            return search.get();
+        }
+        long ttl = observed ? OBSERVED_TTL : UNOBSERVED_TTL;
+        Entry entry = new Entry(getRemovals(), System.currentTimeMillis() + ttl);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        QuickSearchResults searchResults;
+        try {
+            searchResults = search.get();
+        } catch (RuntimeException e) {
+            remove(key, entry);
+            throw e;
+        }
+        // results with a warning, e.g. of an index being built, are likely to be incomplete
+        if (searchResults.getData().containsKey(WARNING)) {
+            remove(key, entry);
+            return searchResults;
+        }
+        entry.data = searchResults.getData();
+        Iterator<QuickSearchHit> hitsIterator = searchResults.getHits();
+        Iterator<QuickSearchHit> recordingHits = new Iterator<QuickSearchHit>() {
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = hitsIterator.hasNext();
+                if (!hasNext) {
+                    entry.complete();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public QuickSearchHit next() {
+                QuickSearchHit hit = hitsIterator.next();
+                record(entry, hit);
+                return hit;
+            }
+        };
+        return new QuickSearchResults(recordingHits, searchResults.getData());
+    }
+
+    private void remove(Key key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    private void record(Entry entry, QuickSearchHit hit) {
+        synchronized (removedPaths) {
+            if (forgottenRemovals > entry.removalsBefore) {
+                // removals made since the search started are not known anymore
+                entry.stopRecording();
+                return;
+            }
+            for (String path = hit.getPath(); path != null; path = ResourceUtil.getParent(path)) {
+                Long removal = removedPaths.get(path);
+                if (removal != null && removal > entry.removalsBefore) {
+                    return;
+                }
+            }
+        }
+        entry.record(hit);
+    }
+
+    private long getRemovals() {
+        synchronized (removedPaths) {
+            return removals;
+        }
+    }
+
+    /**
+     * Checks the entries against the whole batch of changes, without holding the lock of the cache meanwhile.
+     */
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        Changes batch = new Changes(changes);
+        synchronized (removedPaths) {
+            for (String removedPath : batch.removedPaths) {
+                removedPaths.remove(removedPath);
+                removedPaths.put(removedPath, ++removals);
+            }
+        }
+        List<Map.Entry<Key, Entry>> currentEntries;
+        synchronized (entries) {
+            currentEntries = new ArrayList<>(entries.entrySet());
+        }
+        List<Map.Entry<Key, Entry>> affectedEntries = currentEntries.stream()
+                .filter(entry -> entry.getValue().isAffectedBy(entry.getKey(), batch))
+                .collect(toList());
+        if (!affectedEntries.isEmpty()) {
+            synchronized (entries) {
+                affectedEntries.forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    @Override
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    @Override
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    @Override
+    public long getEvictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    @Override
+    public double getHitRatio() {
+        synchronized (entries) {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests : 0;
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        CacheStatistics.unregister(statisticsName);
+        synchronized (entries) {
+            LOG.info("Quick search cache hits: {}, misses: {}, evictions: {}, hit ratio: {}", hits, misses, evictions,
+                    getHitRatio());
+            entries.clear();
+        }
+        synchronized (removedPaths) {
+            removedPaths.clear();
+        }
+    }
+
+    public static final class CachedResults {
+
+        private final List<QuickSearchHit> hits;
+        private final Map<String, Object> data;
+        private final boolean truncated;
+
+        private CachedResults(List<QuickSearchHit> hits, Map<String, Object> data, boolean truncated) {
+            this.hits = hits;
+            this.data = data;
+            this.truncated = truncated;
+        }
+
+        public List<QuickSearchHit> getHits() {
+            return hits;
+        }
+
+        public Map<String, Object> getData() {
+            return data;
+        }
+
+        /**
+         * Whether the search may have more hits than were cached.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+    }
+
+    /**
+     * Changed paths of a batch of changes, with removed paths and their descendants collapsed.
+     */
+    private static final class Changes {
+
+        private final List<ResourceChange> changes = new ArrayList<>();
+        // added and removed paths, which drop entries with hits at or below them
+        private final Set<String> treePaths = new HashSet<>();
+        private final Set<String> removedPaths = new HashSet<>();
+
+        private Changes(List<ResourceChange> changes) {
+            for (ResourceChange change : changes) {
+                if (change.getType() == ChangeType.REMOVED) {
+                    removedPaths.add(change.getPath());
+                }
+            }
+            for (ResourceChange change : changes) {
+                String parentPath = ResourceUtil.getParent(change.getPath());
+                // removal of a subtree is reported for every resource in it
+                if (change.getType() == ChangeType.REMOVED && parentPath != null && isBelowAny(parentPath, removedPaths)) {
+                    continue;
+                }
+                if (change.getType() != ChangeType.CHANGED && !treePaths.add(change.getPath())) {
+                    continue;
+                }
+                this.changes.add(change);
+            }
+            removedPaths.retainAll(treePaths);
+        }
+
+        private static boolean isBelowAny(String path, Set<String> paths) {
+            for (String current = path; current != null; current = ResourceUtil.getParent(current)) {
+                if (paths.contains(current)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final long removalsBefore;
+        private final long expiresAt;
+        private volatile Map<String, Object> data;
+
+        // guarded by this
+        private final List<QuickSearchHit> hits = new ArrayList<>();
+        private boolean recording = true;
+        private boolean complete;
+
+        private Entry(long removalsBefore, long expiresAt) {
+            this.removalsBefore = removalsBefore;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+
+        private synchronized void record(QuickSearchHit hit) {
+            if (!recording) {
+                return;
+            }
+            if (hits.size() < MAX_CACHED_HITS) {
+                hits.add(hit);
+            } else {
+                recording = false;
+            }
+        }
+
+        private synchronized void stopRecording() {
+            recording = false;
+        }
+
+        // called once the search has no more hits, complete only if every hit was recorded
+        private synchronized void complete() {
+            if (recording) {
+                complete = true;
+                recording = false;
+            }
+        }
+
+        private synchronized CachedResults getResults() {
+            return new CachedResults(Collections.unmodifiableList(new ArrayList<>(hits)), data, !complete);
+        }
+
+        private synchronized List<QuickSearchHit> getHits() {
+            return new ArrayList<>(hits);
+        }
+
+        private boolean isAffectedBy(Key key, Changes batch) {
+            for (ResourceChange change : batch.changes) {
+                if (isAffectedBy(key, change)) {
+                    return true;
+                }
+            }
+            if (!batch.treePaths.isEmpty()) {
+                for (QuickSearchHit hit : getHits()) {
+                    if (Changes.isBelowAny(hit.getPath(), batch.treePaths)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean isAffectedBy(Key key, ResourceChange change) {
+            String changedPath = change.getPath();
+            if (key.scopePath != null && !isSameOrDescendant(changedPath, key.scopePath) &&
+                    !isSameOrDescendant(key.scopePath, changedPath)) {
+                return false;
+            }
+            if (QuickSearchService.MODE_PATH.equals(key.mode)) {
+                if (change.getType() == ChangeType.CHANGED) {
+                    // changes of properties do not affect paths
+                    return false;
+                }
+                for (String term : key.terms) {
+                    if (StringUtils.containsIgnoreCase(changedPath, term)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return change.getType() != ChangeType.REMOVED;
+        }
+
+        private static boolean isSameOrDescendant(String path, String parentPath) {
+            return path.equals(parentPath) || path.startsWith(StringUtils.appendIfMissing(parentPath, "/"));
+        }
+
+    }
+
+    private static final class Key {
+
+        private final String provider;
+        private final String mode;
+        private final String scopePath;
+        private final String phrase;
+        private final String userId;
+        private final String[] terms;
+
+        private Key(String provider, String mode, String scopePath, String phrase, String userId) {
+            this.provider = provider;
+            this.mode = mode;
+            this.scopePath = scopePath;
+            this.phrase = phrase;
+            this.userId = userId;
+            this.terms = StringUtils.split(phrase, QuickSearchScoring.TERM_SEPARATORS);
+        }
+
+        private static Key of(String provider, QuickSearchQuery query, ResourceResolver resourceResolver) {
+            String userId = resourceResolver.getUserID();
+            String normalizedPhrase = StringUtils.normalizeSpace(query.getPhrase());
+            if (userId == null || StringUtils.isEmpty(normalizedPhrase)) {
+                return null;
+            }
+            return new Key(provider, query.getMode(), query.getScopePath(), normalizedPhrase, userId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return provider.equals(key.provider) && mode.equals(key.mode) && Objects.equals(scopePath, key.scopePath) &&
+                    phrase.equals(key.phrase) && userId.equals(key.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(provider, mode, scopePath, phrase, userId);
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+/**
+ * Cooperative cancellation of a quick search. Threads are never interrupted, since an interrupt during a repository read may
+ * close its file channels; instead hits are read through {@link #check(QuickSearchResults)}, which fails with
+ * {@link CancellationException} once the search is cancelled, so that no further query rows are fetched.
+ */
+final class QuickSearchCancellation {
+
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    void cancel() {
+        cancelled = true;
+        futures.forEach(future -> future.cancel(false));
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers a task of the search, which is cancelled together with it, so that nobody waits for its result.
+     */
+    void register(Future<?> future) {
+        futures.add(future);
+        if (cancelled) {
+            future.cancel(false);
+        }
+    }
+
+    void check() {
+        if (cancelled) {
+            throw new CancellationException("Quick search was cancelled");
+        }
+    }
+
+    QuickSearchResults check(QuickSearchResults results) {
+        check();
+        Iterator<QuickSearchHit> hits = results.getHits();
+        Iterator<QuickSearchHit> checkedHits = new Iterator<QuickSearchHit>() {
+            @Override
+            public boolean hasNext() {
+                check();
+                return hits.hasNext();
+            }
+
+            @Override
+            public QuickSearchHit next() {
+                check();
+                return hits.next();
+            }
+        };
+        return new QuickSearchResults(checkedHits, results.getData());
+    }
+
+}
@@ -0,0 +1,30 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+public final class QuickSearchQuery {
+
+    private final String phrase;
+    private final String mode;
+    private final String scopePath;
+
+    public QuickSearchQuery(String phrase, String mode, String scopePath) {
+        this.phrase = phrase;
+        this.mode = mode;
+        this.scopePath = scopePath;
+    }
+
+    public String getPhrase() {
+        return phrase;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Path below which resources are searched, {@code null} for the whole tree.
+     */
+    public String getScopePath() {
+        return scopePath;
+    }
+
+}
@@ -3,24 +3,25 @@ package pl.ds.websight.resourcebrowser.service.impl;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.spi.resource.provider.ResourceProvider;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.resourceprovider.NodeTypeCapabilityCache;
+import pl.ds.websight.resourcebrowser.resourceprovider.ProviderStateCache;
 import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProviderInfo;
 import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
 import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
 
-import java.util.HashMap;
+import javax.management.ObjectName;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.Predicate;
 
-import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 
 @Component(service = ResourceBrowserService.class)
@@ -28,28 +29,37 @@ public class ResourceBrowserServiceImpl implements ResourceBrowserService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ResourceBrowserServiceImpl.class);
 
-    private final Map<String, ResourceProviderStorageItem> resourceProviders = new HashMap<>();
+    private final ProviderStateCache providerStateCache = new ProviderStateCache();
+
+    private volatile ResourceProvidersSnapshot snapshot = ResourceProvidersSnapshot.EMPTY;
+
+    @Reference
+    private NodeTypeCapabilityCache nodeTypeCapabilityCache;
+
+    private ObjectName statisticsName;
+
+    @Activate
+    protected void activate() {
+        statisticsName = CacheStatistics.register("Provider states cache", providerStateCache);
+    }
 
     @Override
     public ResourceProvidersControl getResourceProvidersControl(List<String> providerNames, ResourceResolver resourceResolver) {
-        List<ResourceProviderStorageItem> requestedProviders = resourceProviders.values().stream()
-                .filter(item -> providerNames.contains(item.getInfo().getName()))
-                .collect(toList());
-        return new ResourceProvidersControl(requestedProviders, resourceResolver);
+        ResourceProvidersSnapshot currentSnapshot = snapshot;
+        return new ResourceProvidersControl(currentSnapshot.getProviders(providerNames), currentSnapshot.getProviderRootTrie(),
+                providerStateCache, nodeTypeCapabilityCache, resourceResolver);
     }
 
     @Override
     public List<ResourceProviderInfo> listAvailableProviders() {
-        return resourceProviders.values().stream()
-                .map(ResourceProviderStorageItem::getInfo)
-                .filter(distinctByField(ResourceProviderInfo::getName))
-                .sorted(comparing(o -> StringUtils.substringAfterLast(o.getName(), ".")))
-                .collect(toList());
+        return snapshot.getAvailableProviders();
     }
 
-    private static <T> Predicate<T> distinctByField(Function<? super T, ?> fieldExtractor) {
-        Map<Object, Boolean> seen = new ConcurrentHashMap<>();
-        return t -> seen.putIfAbsent(fieldExtractor.apply(t), Boolean.TRUE) == null;
+    @Override
+    public List<ResourceProviderInfo> listProviderInstances(String providerName) {
+        return snapshot.getProviders(Collections.singletonList(providerName)).stream()
+                .map(ResourceProviderStorageItem::getInfo)
+                .collect(toList());
     }
 
     @Reference(service = ResourceProvider.class, cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC)
@@ -57,14 +67,30 @@ public class ResourceBrowserServiceImpl implements ResourceBrowserService {
         LOG.debug("Binding {}", resourceProvider.getClass().getName());
         String rootPath = (String) properties.get(ResourceProvider.PROPERTY_ROOT);
         if (StringUtils.isNotBlank(rootPath)) {
-            resourceProviders.put(rootPath, new ResourceProviderStorageItem(resourceProvider, properties));
+            ResourceProviderStorageItem replacedProvider = snapshot.getProvider(rootPath);
+            snapshot = snapshot.withProvider(rootPath, new ResourceProviderStorageItem(resourceProvider, properties));
+            LOG.debug("Resource providers snapshot updated to version {}", snapshot.getVersion());
+            if (replacedProvider != null) {
+                providerStateCache.invalidate(replacedProvider);
+            }
         }
     }
 
     protected synchronized void unbindResourceProviders(ResourceProvider<Object> resourceProvider, Map<String, Object> properties) {
         LOG.debug("Unbinding {}", resourceProvider.getClass().getName());
         String rootPath = (String) properties.get(ResourceProvider.PROPERTY_ROOT);
-        resourceProviders.remove(rootPath);
+        ResourceProviderStorageItem removedProvider = snapshot.getProvider(rootPath);
+        snapshot = snapshot.withoutProvider(rootPath);
+        LOG.debug("Resource providers snapshot updated to version {}", snapshot.getVersion());
+        if (removedProvider != null) {
+            providerStateCache.invalidate(removedProvider);
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        CacheStatistics.unregister(statisticsName);
+        providerStateCache.invalidateAll();
     }
 
     public static class ResourceProviderStorageItem {
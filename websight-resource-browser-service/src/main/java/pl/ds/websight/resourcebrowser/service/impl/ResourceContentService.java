@@ -12,7 +12,9 @@ import pl.ds.websight.resourcebrowser.api.ResourceContentProvider;
 import pl.ds.websight.resourcebrowser.resourceprovider.AuthenticatedResourceProvider;
 import pl.ds.websight.resourcebrowser.util.ResourceBrowserUtil;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,6 +35,28 @@ public class ResourceContentService {
         return null;
     }
 
+    public InputStream getContent(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant, long offset)
+            throws IOException {
+        if (resourceVariant != null) {
+            return getContentProvider(resourceVariant).getContent(resourceVariant.getValue(), offset);
+        }
+        return null;
+    }
+
+    public Path getContentFile(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
+        if (resourceVariant != null) {
+            return getContentProvider(resourceVariant).getContentFile(resourceVariant.getValue());
+        }
+        return null;
+    }
+
+    public long getContentLength(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
+        if (resourceVariant != null) {
+            return getContentProvider(resourceVariant).getContentLength(resourceVariant.getValue());
+        }
+        return -1;
+    }
+
     public String getSourcePath(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
         if (resourceVariant != null) {
             return getContentProvider(resourceVariant).getSourcePath(resourceVariant.getValue());
@@ -54,6 +78,20 @@ public class ResourceContentService {
         return false;
     }
 
+    public String getETag(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
+        if (resourceVariant != null) {
+            return getContentProvider(resourceVariant).getETag(resourceVariant.getValue());
+        }
+        return null;
+    }
+
+    public long getLastModified(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
+        if (resourceVariant != null) {
+            return getContentProvider(resourceVariant).getLastModified(resourceVariant.getValue());
+        }
+        return -1;
+    }
+
     private ResourceContentProvider getContentProvider(Map.Entry<AuthenticatedResourceProvider, Resource> resourceVariant) {
         String resourceProviderName = resourceVariant.getKey().getInfo().getName();
         return contentProvidersByProviderClassName.getOrDefault(resourceProviderName, defaultResourceContentProvider);
@@ -0,0 +1,213 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.dto.ResourceListDto;
+import pl.ds.websight.resourcebrowser.resourceprovider.ChildrenWindow;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
+import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+
+@Component(service = ResourceListService.class)
+public class ResourceListService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceListService.class);
+
+    private static final int PARALLELISM = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long PATH_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    @Reference
+    private ResourceBrowserService resourceBrowserService;
+
+    @Reference
+    private ResourceContentService resourceContentService;
+
+    private ExecutorService executor;
+
+    @Activate
+    protected void activate() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "websight-resource-browser-list-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(PARALLELISM, threadFactory);
+    }
+
+    // workers are never interrupted, since an interrupt during a repository read may close its file channels
+    @Deactivate
+    protected void deactivate() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.warn("Listing workers did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lists the given paths together with a window of their children. When more than one path is requested, paths are listed
+     * in parallel, each by a worker using its own clone of the resource resolver, since JCR sessions must not be shared between
+     * threads. Results keep the order of paths; paths which do not exist or exceed the timeout are skipped.
+     */
+    public List<ResourceListDto> listResources(List<String> providers, ResourceResolver resourceResolver, List<String> paths,
+            int offset, int limit, String cursor) {
+        List<ResourceListDto> resources = new ArrayList<>(paths.size());
+        listResources(providers, resourceResolver, paths, offset, limit, cursor, resources::add);
+        return resources;
+    }
+
+    /**
+     * Lists the given paths like {@link #listResources(List, ResourceResolver, List, int, int, String)}, but passes every result
+     * to the consumer as soon as it and the results of all preceding paths are complete, so that results keep the order of paths.
+     */
+    public void listResources(List<String> providers, ResourceResolver resourceResolver, List<String> paths, int offset, int limit,
+            String cursor, Consumer<ResourceListDto> resultConsumer) {
+        if (paths.size() < 2) {
+            ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(providers, resourceResolver);
+            paths.stream()
+                    .map(path -> listResource(providersControl, resourceResolver, path, offset, limit, cursor,
+                            new ListingCancellation()))
+                    .filter(Objects::nonNull)
+                    .forEach(resultConsumer);
+            return;
+        }
+        List<Future<ResourceListDto>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            futures.add(submitListing(providers, resourceResolver, path, offset, limit, cursor));
+        }
+        long deadline = System.currentTimeMillis() + PATH_TIMEOUT;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                ResourceListDto resource = getResult(futures.get(i), paths.get(i), deadline);
+                if (resource != null) {
+                    resultConsumer.accept(resource);
+                }
+            }
+        } finally {
+            // listings are not needed anymore when the consumer fails
+            futures.stream()
+                    .filter(Objects::nonNull)
+                    .forEach(future -> future.cancel(false));
+        }
+    }
+
+    private Future<ResourceListDto> submitListing(List<String> providers, ResourceResolver resourceResolver, String path, int offset,
+            int limit, String cursor) {
+        ResourceResolver workerResolver;
+        try {
+            // cloned on the request thread, so that the request session is never accessed concurrently
+            workerResolver = resourceResolver.clone(null);
+        } catch (LoginException e) {
+            LOG.warn("Could not clone resource resolver to list {}", path, e);
+            return null;
+        }
+        // whoever claims the resolver first closes it: the worker, or cancellation of a task that has not started yet
+        AtomicBoolean claimed = new AtomicBoolean();
+        // once the task is cancelled, the worker stops listing children
+        ListingCancellation cancellation = new ListingCancellation();
+        FutureTask<ResourceListDto> task = new FutureTask<ResourceListDto>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try (ResourceResolver resolver = workerResolver) {
+                ResourceProvidersControl providersControl = resourceBrowserService.getResourceProvidersControl(providers, resolver);
+                return listResource(providersControl, resolver, path, offset, limit, cursor, cancellation);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    cancellation.cancel();
+                    if (claimed.compareAndSet(false, true)) {
+                        workerResolver.close();
+                    }
+                }
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    private static ResourceListDto getResult(Future<ResourceListDto> future, String path, long deadline) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("Listing of {} timed out", path);
+            future.cancel(false);
+        } catch (CancellationException e) {
+            LOG.debug("Listing of {} was cancelled", path);
+        } catch (ExecutionException e) {
+            LOG.warn("Could not list {}", path, e.getCause());
+        } catch (InterruptedException e) {
+            LOG.warn("Listing of {} interrupted", path);
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private ResourceListDto listResource(ResourceProvidersControl providersControl, ResourceResolver resourceResolver, String path,
+            int offset, int limit, String cursor, ListingCancellation cancellation) {
+        ResourceWrapper parentProvidedResource = providersControl.getResource(resourceResolver, path);
+        if (parentProvidedResource == null) {
+            return null;
+        }
+        ResourceListDto resourceListDto = createListResourcesItem(parentProvidedResource, resourceResolver, providersControl);
+        ChildrenWindow childrenWindow = providersControl.listChildren(parentProvidedResource, offset, limit, cursor);
+        for (ResourceWrapper providedResource : childrenWindow.getChildren()) {
+            cancellation.check();
+            resourceListDto.addChild(createListResourcesItem(providedResource, resourceResolver, providersControl));
+        }
+        resourceListDto.setNextCursor(childrenWindow.getNextCursor());
+        return resourceListDto;
+    }
+
+    public List<ResourceWrapper> getRootResources(ResourceProvidersControl providersControl, ResourceResolver resourceResolver,
+            List<String> paths) {
+        return paths.stream()
+                .map(path -> providersControl.getResource(resourceResolver, path))
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    public ResourceListDto createListResourcesItem(ResourceWrapper providedResource, ResourceResolver resourceResolver,
+            ResourceProvidersControl providersControl) {
+        boolean hasChildren = providersControl.hasChildren(providedResource);
+        String shadowedBy = providersControl.getShadowingProviderName(providedResource, resourceResolver);
+        boolean hasContent = resourceContentService.hasContent(providedResource.getPrimaryVariant());
+        boolean orderable = !providersControl.shouldSort(providedResource);
+        return new ResourceListDto(providedResource, shadowedBy, hasContent, hasChildren, orderable);
+    }
+
+}
@@ -0,0 +1,95 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProviderInfo;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProviderRootTrie;
+import pl.ds.websight.resourcebrowser.service.impl.ResourceBrowserServiceImpl.ResourceProviderStorageItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Immutable state of registered resource providers. Every change of the registry creates a new snapshot, so readers never
+ * need to lock, filter or sort.
+ */
+final class ResourceProvidersSnapshot {
+
+    static final ResourceProvidersSnapshot EMPTY = new ResourceProvidersSnapshot(0, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, ResourceProviderStorageItem> providersByRoot;
+    private final Map<String, List<ResourceProviderStorageItem>> providersByName;
+    private final ResourceProviderRootTrie<ResourceProviderStorageItem> providerRootTrie;
+    private final List<ResourceProviderInfo> availableProviders;
+
+    private ResourceProvidersSnapshot(long version, Map<String, ResourceProviderStorageItem> providersByRoot) {
+        this.version = version;
+        this.providersByRoot = Collections.unmodifiableMap(providersByRoot);
+        List<ResourceProviderStorageItem> sortedProviders = providersByRoot.values().stream()
+                .sorted(comparing(ResourceProviderStorageItem::getInfo, Comparator.reverseOrder()))
+                .collect(toList());
+        this.providersByName = groupByName(sortedProviders);
+        this.providerRootTrie = ResourceProviderRootTrie.build(sortedProviders, item -> item.getInfo().getRoot());
+        this.availableProviders = Collections.unmodifiableList(providersByName.values().stream()
+                .map(items -> items.get(0).getInfo())
+                .sorted(comparing(info -> StringUtils.substringAfterLast(info.getName(), ".")))
+                .collect(toList()));
+    }
+
+    private static Map<String, List<ResourceProviderStorageItem>> groupByName(List<ResourceProviderStorageItem> sortedProviders) {
+        Map<String, List<ResourceProviderStorageItem>> grouped = new LinkedHashMap<>();
+        for (ResourceProviderStorageItem item : sortedProviders) {
+            grouped.computeIfAbsent(item.getInfo().getName(), name -> new ArrayList<>()).add(item);
+        }
+        grouped.replaceAll((name, items) -> Collections.unmodifiableList(items));
+        return Collections.unmodifiableMap(grouped);
+    }
+
+    ResourceProvidersSnapshot withProvider(String rootPath, ResourceProviderStorageItem item) {
+        Map<String, ResourceProviderStorageItem> updated = new HashMap<>(providersByRoot);
+        updated.put(rootPath, item);
+        return new ResourceProvidersSnapshot(version + 1, updated);
+    }
+
+    ResourceProvidersSnapshot withoutProvider(String rootPath) {
+        if (!providersByRoot.containsKey(rootPath)) {
+            return this;
+        }
+        Map<String, ResourceProviderStorageItem> updated = new HashMap<>(providersByRoot);
+        updated.remove(rootPath);
+        return new ResourceProvidersSnapshot(version + 1, updated);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    ResourceProviderStorageItem getProvider(String rootPath) {
+        return rootPath != null ? providersByRoot.get(rootPath) : null;
+    }
+
+    List<ResourceProviderStorageItem> getProviders(List<String> providerNames) {
+        List<ResourceProviderStorageItem> providers = new ArrayList<>();
+        for (String providerName : providerNames) {
+            providers.addAll(providersByName.getOrDefault(providerName, Collections.emptyList()));
+        }
+        return providers;
+    }
+
+    ResourceProviderRootTrie<ResourceProviderStorageItem> getProviderRootTrie() {
+        return providerRootTrie;
+    }
+
+    List<ResourceProviderInfo> getAvailableProviders() {
+        return availableProviders;
+    }
+
+}
@@ -0,0 +1,555 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.ds.websight.resourcebrowser.api.QuickSearchHit;
+import pl.ds.websight.resourcebrowser.api.QuickSearchResults;
+import pl.ds.websight.resourcebrowser.api.QuickSearchService;
+import pl.ds.websight.resourcebrowser.dto.QuickSearchDto;
+import pl.ds.websight.resourcebrowser.dto.ResourceListDto;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceProvidersControl;
+import pl.ds.websight.resourcebrowser.resourceprovider.ResourceWrapper;
+import pl.ds.websight.resourcebrowser.service.ResourceBrowserService;
+import pl.ds.websight.resourcebrowser.service.impl.QuickSearchCache.CachedResults;
+import pl.ds.websight.resourcebrowser.util.ResourceBrowserUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Component(service = ResourceQuickSearchService.class)
+public class ResourceQuickSearchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceQuickSearchService.class);
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 200;
+    private static final String CURSOR_SEPARATOR = ":";
+    private static final int PARALLELISM = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long SEARCH_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+    private static final String TIMEOUT_WARNING = "Search timed out, results may be incomplete...";
+    private static final String CANCELLED = "cancelled";
+    private static final String CLIENT_SEPARATOR = ":";
+
+    // services handling searches, by mode and provider
+    private final Map<String, Map<String, QuickSearchService>> quickSearchServices = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Map<QuickSearchService, Integer>>> rankedQuickSearchServices = new HashMap<>();
+    // services whose results are invalidated by resource change events, so they can be cached for longer
+    private final Set<QuickSearchService> observedQuickSearchServices = ConcurrentHashMap.newKeySet();
+    // searches in progress, by user and client
+    private final Map<String, QuickSearchCancellation> runningSearches = new ConcurrentHashMap<>();
+    // all searches in progress, cancelled on deactivation
+    private final Set<QuickSearchCancellation> activeSearches = ConcurrentHashMap.newKeySet();
+
+    @Reference
+    private ResourceBrowserService resourceBrowserService;
+
+    @Reference
+    private ResourceContentService resourceContentService;
+
+    @Reference
+    private QuickSearchCache quickSearchCache;
+
+    @Reference
+    private ProviderPathIndexService providerPathIndexService;
+
+    private ExecutorService executor;
+
+    @Activate
+    protected void activate() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "websight-resource-browser-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(PARALLELISM, threadFactory);
+    }
+
+    // workers are never interrupted, since an interrupt during a repository read may close its file channels
+    @Deactivate
+    protected void deactivate() {
+        activeSearches.forEach(QuickSearchCancellation::cancel);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.warn("Search workers did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public QuickSearchDto search(List<String> providers, ResourceResolver resourceResolver, QuickSearchQuery query, int offset,
+            int limit, String cursor, String clientId) {
+        return search(providers, resourceResolver, query, offset, limit, cursor, clientId, result -> {
+        });
+    }
+
+    /**
+     * Searches resources of the given providers and returns a page of results ordered by score, passing every result to the
+     * consumer as soon as it is resolved. The page starts after the hit identified by {@code cursor} or, when cursor is not
+     * set, after {@code offset} hits. Cached results are used where they cover the page, the remaining providers are searched
+     * concurrently with a shared deadline; results of providers which do not finish in time are left out and marked with a
+     * timeout flag in their data. A search of a client is cancelled as soon as the same client starts another one, its
+     * results are then marked with a cancelled flag in data.
+     */
+    public QuickSearchDto search(List<String> providers, ResourceResolver resourceResolver, QuickSearchQuery query, int offset,
+            int limit, String cursor, String clientId, Consumer<ResourceListDto> resultConsumer) {
+        String searchKey = getSearchKey(resourceResolver, clientId);
+        QuickSearchCancellation cancellation = new QuickSearchCancellation();
+        activeSearches.add(cancellation);
+        if (searchKey != null) {
+            QuickSearchCancellation supersededCancellation = runningSearches.put(searchKey, cancellation);
+            if (supersededCancellation != null) {
+                supersededCancellation.cancel();
+            }
+        }
+        Map<String, Object> data = new HashMap<>();
+        List<ResourceListDto> results = new ArrayList<>();
+        try {
+            String nextCursor = search(providers, resourceResolver, query, offset, limit, cursor, cancellation, data, result -> {
+                results.add(result);
+                resultConsumer.accept(result);
+            });
+            return new QuickSearchDto(results, data, nextCursor);
+        } catch (CancellationException e) {
+            LOG.debug("Search of '{}' was cancelled", query.getPhrase());
+            data.put(CANCELLED, true);
+            return new QuickSearchDto(results, data);
+        } finally {
+            activeSearches.remove(cancellation);
+            if (searchKey != null) {
+                runningSearches.remove(searchKey, cancellation);
+            }
+        }
+    }
+
+    private String search(List<String> providers, ResourceResolver resourceResolver, QuickSearchQuery query, int offset,
+            int limit, String cursor, QuickSearchCancellation cancellation, Map<String, Object> data,
+            Consumer<ResourceListDto> resultConsumer) {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_LIMIT) : DEFAULT_LIMIT;
+        HitsWindow window = cursor != null ? new HitsWindow(getCursorScore(cursor), pageSize + 1) :
+                new HitsWindow(null, offset + pageSize + 1);
+        Map<String, QuickSearchService> providerServices = getQuickSearchServices(providers, query.getMode(), resourceResolver);
+        MergedHits hits = new MergedHits(searchProviders(providerServices, resourceResolver, query, window, cancellation, data));
+        if (cursor != null) {
+            skipToCursor(hits, cursor);
+        } else {
+            for (int skipped = 0; skipped < offset && hits.hasNext(); skipped++) {
+                hits.next();
+            }
+        }
+
+        int resultsCount = 0;
+        Set<String> includedPaths = new HashSet<>();
+        QuickSearchHit lastHit = null;
+        // all hits are resolved through a single control, which authenticates every provider only once per request
+        ResourceProvidersControl providersControl = null;
+        while (resultsCount < pageSize && hits.hasNext()) {
+            cancellation.check();
+            QuickSearchHit hit = hits.next();
+            lastHit = hit;
+            if (includedPaths.add(hit.getPath())) {
+                if (providersControl == null) {
+                    providersControl = resourceBrowserService.getResourceProvidersControl(providers, resourceResolver);
+                }
+                ResourceListDto result = createResult(providersControl, resourceResolver, hit);
+                if (result != null) {
+                    resultsCount++;
+                    resultConsumer.accept(result);
+                }
+            }
+        }
+        return lastHit != null && hits.hasMore() ? toCursor(lastHit) : null;
+    }
+
+    private static String getSearchKey(ResourceResolver resourceResolver, String clientId) {
+        String userId = resourceResolver.getUserID();
+        return clientId != null && userId != null ? userId + CLIENT_SEPARATOR + clientId : null;
+    }
+
+    private Map<String, QuickSearchService> getQuickSearchServices(List<String> providers, String mode,
+            ResourceResolver resourceResolver) {
+        Map<String, QuickSearchService> modeServices = quickSearchServices.getOrDefault(mode, Collections.emptyMap());
+        Map<String, QuickSearchService> providerServices = new LinkedHashMap<>();
+        for (String provider : providers) {
+            QuickSearchService quickSearchService = modeServices.get(provider);
+            if (quickSearchService == null && QuickSearchService.MODE_PATH.equals(mode)) {
+                // paths of providers without a dedicated service are searched in an index built by crawling the provider
+                quickSearchService = providerPathIndexService.getQuickSearchService(provider, resourceResolver);
+            }
+            if (quickSearchService != null) {
+                providerServices.put(provider, quickSearchService);
+            }
+        }
+        return providerServices;
+    }
+
+    private List<ProviderHits> searchProviders(Map<String, QuickSearchService> providerServices, ResourceResolver resourceResolver,
+            QuickSearchQuery query, HitsWindow window, QuickSearchCancellation cancellation, Map<String, Object> data) {
+        List<String> searchedProviders = new ArrayList<>(providerServices.keySet());
+        List<ProviderHits> providersHits = new ArrayList<>();
+        List<Integer> notCached = new ArrayList<>();
+        for (int i = 0; i < searchedProviders.size(); i++) {
+            CachedResults cachedResults = quickSearchCache.get(searchedProviders.get(i), query, resourceResolver);
+            if (cachedResults != null && window.isCoveredBy(cachedResults)) {
+                providersHits.add(new ProviderHits(searchedProviders.get(i), i, cachedResults.getHits().iterator(),
+                        cachedResults.getData(), cachedResults.isTruncated()));
+            } else {
+                notCached.add(i);
+            }
+        }
+        if (notCached.size() < 2) {
+            // a single provider is searched on the request thread and its hits are read lazily
+            for (int i : notCached) {
+                String providerName = searchedProviders.get(i);
+                QuickSearchResults searchResults = search(providerName, providerServices.get(providerName), resourceResolver, query,
+                        cancellation);
+                providersHits.add(new ProviderHits(providerName, i, searchResults.getHits(), searchResults.getData(), false));
+            }
+        } else {
+            List<Future<ProviderHits>> futures = new ArrayList<>(notCached.size());
+            for (int i : notCached) {
+                String providerName = searchedProviders.get(i);
+                Future<ProviderHits> future = submitSearch(providerName, providerServices.get(providerName), i, resourceResolver, query,
+                        window);
+                if (future != null) {
+                    cancellation.register(future);
+                }
+                futures.add(future);
+            }
+            long deadline = System.currentTimeMillis() + SEARCH_TIMEOUT;
+            for (int i = 0; i < futures.size(); i++) {
+                ProviderHits providerHits = getResult(futures.get(i), searchedProviders.get(notCached.get(i)), deadline, data);
+                if (providerHits != null) {
+                    providersHits.add(providerHits);
+                }
+            }
+            cancellation.check();
+        }
+        for (ProviderHits providerHits : providersHits) {
+            if (!providerHits.data.isEmpty()) {
+                data.put(providerHits.provider, providerHits.data);
+            }
+        }
+        return providersHits;
+    }
+
+    private QuickSearchResults search(String providerName, QuickSearchService quickSearchService,
+            ResourceResolver resourceResolver, QuickSearchQuery query, QuickSearchCancellation cancellation) {
+        boolean observed = observedQuickSearchServices.contains(quickSearchService);
+        return quickSearchCache.search(providerName, query, observed, resourceResolver, () -> cancellation.check(
+                quickSearchService.search(resourceResolver, query.getPhrase(), query.getScopePath())));
+    }
+
+    /**
+     * Searches a provider with a clone of the resource resolver, since JCR sessions must not be shared between threads. Hits are
+     * read up to the window needed for the requested page, so that the clone can be closed by the worker. Once the task is
+     * cancelled, the worker stops reading hits.
+     */
+    private Future<ProviderHits> submitSearch(String providerName, QuickSearchService quickSearchService, int order,
+            ResourceResolver resourceResolver, QuickSearchQuery query, HitsWindow window) {
+        ResourceResolver workerResolver;
+        try {
+            // cloned on the request thread, so that the request session is never accessed concurrently
+            workerResolver = resourceResolver.clone(null);
+        } catch (LoginException e) {
+            LOG.warn("Could not clone resource resolver to search {}", providerName, e);
+            return null;
+        }
+        // whoever claims the resolver first closes it: the worker, or cancellation of a task that has not started yet
+        AtomicBoolean claimed = new AtomicBoolean();
+        QuickSearchCancellation taskCancellation = new QuickSearchCancellation();
+        FutureTask<ProviderHits> task = new FutureTask<ProviderHits>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try (ResourceResolver resolver = workerResolver) {
+                QuickSearchResults searchResults = search(providerName, quickSearchService, resolver, query, taskCancellation);
+                Iterator<QuickSearchHit> hits = searchResults.getHits();
+                List<QuickSearchHit> windowHits = window.read(hits);
+                return new ProviderHits(providerName, order, windowHits.iterator(), searchResults.getData(), hits.hasNext());
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    taskCancellation.cancel();
+                    if (claimed.compareAndSet(false, true)) {
+                        workerResolver.close();
+                    }
+                }
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    private static ProviderHits getResult(Future<ProviderHits> future, String providerName, long deadline, Map<String, Object> data) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("Search of {} timed out", providerName);
+            future.cancel(false);
+            Map<String, Object> timeoutData = new HashMap<>();
+            timeoutData.put("timeout", true);
+            timeoutData.put("warning", TIMEOUT_WARNING);
+            data.put(providerName, timeoutData);
+        } catch (CancellationException e) {
+            LOG.debug("Search of {} was cancelled", providerName);
+        } catch (ExecutionException e) {
+            LOG.warn("Could not search {}", providerName, e.getCause());
+        } catch (InterruptedException e) {
+            LOG.warn("Search of {} interrupted", providerName);
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void skipToCursor(MergedHits hits, String cursor) {
+        double cursorScore = getCursorScore(cursor);
+        String cursorPath = StringUtils.substringAfter(cursor, CURSOR_SEPARATOR);
+        while (hits.hasNext() && hits.peek().getScore() >= cursorScore) {
+            if (cursorPath.equals(hits.next().getPath())) {
+                return;
+            }
+        }
+    }
+
+    private static double getCursorScore(String cursor) {
+        return NumberUtils.toDouble(StringUtils.substringBefore(cursor, CURSOR_SEPARATOR));
+    }
+
+    private static String toCursor(QuickSearchHit hit) {
+        return hit.getScore() + CURSOR_SEPARATOR + hit.getPath();
+    }
+
+    private ResourceListDto createResult(ResourceProvidersControl providersControl, ResourceResolver resourceResolver,
+            QuickSearchHit hit) {
+        ResourceWrapper providedResource = providersControl.getResource(resourceResolver, hit.getPath());
+        // resources which are not served by the resource resolver are not found
+        if (providedResource == null || providedResource.getPrimaryVariant() == null ||
+                providersControl.getShadowingProviderName(providedResource, resourceResolver) != null) {
+            return null;
+        }
+        boolean hasContent = resourceContentService.hasContent(providedResource.getPrimaryVariant());
+        boolean hasChildren = providersControl.hasChildren(providedResource);
+        ResourceListDto result = new ResourceListDto(providedResource, null, hasContent, hasChildren, false);
+        if (!hit.getMatchedProperties().isEmpty()) {
+            result.setMatchedProperties(hit.getMatchedProperties());
+        }
+        return result;
+    }
+
+    @Reference(service = QuickSearchService.class, cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC)
+    protected synchronized void bindQuickSearchService(QuickSearchService quickSearchService, Map<String, Object> properties) {
+        String provider = (String) properties.get(ResourceBrowserUtil.SERVICE_PROPERTY_PROVIDER);
+        if (StringUtils.isNotBlank(provider)) {
+            LOG.debug("Binding {}", quickSearchService);
+            String mode = getMode(properties);
+            rankedQuickSearchServices.computeIfAbsent(mode, key -> new HashMap<>())
+                    .computeIfAbsent(provider, key -> new HashMap<>())
+                    .put(quickSearchService, getServiceRanking(properties));
+            if (Boolean.TRUE.equals(properties.get(ResourceBrowserUtil.SERVICE_PROPERTY_OBSERVED))) {
+                observedQuickSearchServices.add(quickSearchService);
+            }
+            updateQuickSearchService(mode, provider);
+        }
+    }
+
+    protected synchronized void unbindQuickSearchService(QuickSearchService quickSearchService, Map<String, Object> properties) {
+        String provider = (String) properties.get(ResourceBrowserUtil.SERVICE_PROPERTY_PROVIDER);
+        if (StringUtils.isNotBlank(provider)) {
+            LOG.debug("Unbinding {}", quickSearchService);
+            String mode = getMode(properties);
+            Map<QuickSearchService, Integer> providerServices = rankedQuickSearchServices
+                    .getOrDefault(mode, Collections.emptyMap())
+                    .get(provider);
+            if (providerServices != null) {
+                providerServices.remove(quickSearchService);
+            }
+            observedQuickSearchServices.remove(quickSearchService);
+            updateQuickSearchService(mode, provider);
+        }
+    }
+
+    // the service with the highest ranking handles searches of a mode for a provider
+    private void updateQuickSearchService(String mode, String provider) {
+        Map<String, Map<QuickSearchService, Integer>> modeServices = rankedQuickSearchServices.get(mode);
+        Map<QuickSearchService, Integer> providerServices = modeServices != null ? modeServices.get(provider) : null;
+        if (providerServices == null || providerServices.isEmpty()) {
+            if (modeServices != null) {
+                modeServices.remove(provider);
+            }
+            quickSearchServices.getOrDefault(mode, Collections.emptyMap()).remove(provider);
+        } else {
+            providerServices.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .ifPresent(entry -> quickSearchServices.computeIfAbsent(mode, key -> new ConcurrentHashMap<>())
+                            .put(provider, entry.getKey()));
+        }
+    }
+
+    private static String getMode(Map<String, Object> properties) {
+        Object mode = properties.get(ResourceBrowserUtil.SERVICE_PROPERTY_MODE);
+        return mode instanceof String ? (String) mode : QuickSearchService.MODE_PATH;
+    }
+
+    private static int getServiceRanking(Map<String, Object> properties) {
+        Object ranking = properties.get(Constants.SERVICE_RANKING);
+        return ranking instanceof Integer ? (Integer) ranking : 0;
+    }
+
+    private static final class ProviderHits {
+
+        private final String provider;
+        private final int order;
+        private final Iterator<QuickSearchHit> hits;
+        private final Map<String, Object> data;
+        // hits were read only up to a window and the provider has more of them
+        private final boolean truncated;
+        private QuickSearchHit next;
+
+        private ProviderHits(String provider, int order, Iterator<QuickSearchHit> hits, Map<String, Object> data,
+                boolean truncated) {
+            this.provider = provider;
+            this.order = order;
+            this.hits = hits;
+            this.data = data;
+            this.truncated = truncated;
+            advance();
+        }
+
+        private void advance() {
+            next = hits.hasNext() ? hits.next() : null;
+        }
+
+    }
+
+    /**
+     * Hits of a provider needed for a page: all hits scored at least as the cursor, followed by the given number of hits.
+     */
+    private static final class HitsWindow {
+
+        private final Double cursorScore;
+        private final int count;
+
+        private HitsWindow(Double cursorScore, int count) {
+            this.cursorScore = cursorScore;
+            this.count = count;
+        }
+
+        private List<QuickSearchHit> read(Iterator<QuickSearchHit> hits) {
+            List<QuickSearchHit> windowHits = new ArrayList<>();
+            int remaining = count;
+            while (remaining > 0 && hits.hasNext()) {
+                QuickSearchHit hit = hits.next();
+                windowHits.add(hit);
+                if (cursorScore == null || hit.getScore() < cursorScore) {
+                    remaining--;
+                }
+            }
+            return windowHits;
+        }
+
+        // whether the cached hits hold the whole window, or all hits of the search
+        private boolean isCoveredBy(CachedResults cachedResults) {
+            return !cachedResults.isTruncated() ||
+                    read(cachedResults.getHits().iterator()).size() < cachedResults.getHits().size();
+        }
+
+    }
+
+    /**
+     * Merges hits of providers, each ordered from the highest score, into a single ordered sequence. Hits with equal scores
+     * keep the order of providers. The sequence ends early once a truncated provider runs out of hits, as further hits could
+     * not be ordered correctly.
+     */
+    private static final class MergedHits implements Iterator<QuickSearchHit> {
+
+        private final PriorityQueue<ProviderHits> queue = new PriorityQueue<>((first, second) -> {
+            int byScore = Double.compare(second.next.getScore(), first.next.getScore());
+            return byScore != 0 ? byScore : Integer.compare(first.order, second.order);
+        });
+        private boolean incomplete;
+
+        private MergedHits(List<ProviderHits> providersHits) {
+            for (ProviderHits providerHits : providersHits) {
+                if (providerHits.next != null) {
+                    queue.add(providerHits);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !incomplete && !queue.isEmpty();
+        }
+
+        private boolean hasMore() {
+            return incomplete || !queue.isEmpty();
+        }
+
+        private QuickSearchHit peek() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return queue.peek().next;
+        }
+
+        @Override
+        public QuickSearchHit next() {
+            ProviderHits providerHits = hasNext() ? queue.poll() : null;
+            if (providerHits == null) {
+                throw new NoSuchElementException();
+            }
+            QuickSearchHit hit = providerHits.next;
+            providerHits.advance();
+            if (providerHits.next != null) {
+                queue.add(providerHits);
+            } else if (providerHits.truncated) {
+                incomplete = true;
+            }
+            return hit;
+        }
+
+    }
+
+}
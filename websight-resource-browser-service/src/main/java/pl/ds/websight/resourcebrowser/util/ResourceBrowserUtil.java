@@ -3,6 +3,8 @@ package pl.ds.websight.resourcebrowser.util;
 public final class ResourceBrowserUtil {
 
     public static final String SERVICE_PROPERTY_PROVIDER = "provider";
+    public static final String SERVICE_PROPERTY_OBSERVED = "observed";
+    public static final String SERVICE_PROPERTY_MODE = "mode";
     public static final String ARRAY_TYPE_SUFFIX = "[]";
 
     private ResourceBrowserUtil() {
@@ -0,0 +1,157 @@
+package pl.ds.websight.resourcebrowser.api;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PathNameIndexTest {
+
+    @Test
+    public void ordersExactThenPrefixThenContainedMatchesByDepth() {
+        PathNameIndex index = index("/apps/mypage", "/content/site/page", "/content/pages", "/page");
+
+        assertEquals(Arrays.asList("/page", "/content/site/page", "/content/pages", "/apps/mypage"), search(index, null, "page"));
+    }
+
+    @Test
+    public void matchesPrecedingTermsWithAncestorsInOrder() {
+        PathNameIndex index = index("/content/site/de/home", "/apps/site/home");
+
+        assertEquals(Collections.singletonList("/content/site/de/home"), search(index, null, "site", "de", "home"));
+        assertTrue(search(index, null, "de", "site", "home").isEmpty());
+        assertEquals(2, search(index, null, "site", "home").size());
+    }
+
+    @Test
+    public void searchesOnlyDescendantsOfScope() {
+        PathNameIndex index = index("/content/site/home", "/apps/site/home");
+
+        assertEquals(Collections.singletonList("/apps/site/home"), search(index, "/apps", "home"));
+        assertTrue(search(index, "/apps/site/home", "home").isEmpty());
+        assertTrue(search(index, "/missing", "home").isEmpty());
+    }
+
+    @Test
+    public void searchesShortTermsOnlyWithinScope() {
+        PathNameIndex index = index("/content/site/de/home", "/content/de");
+
+        assertTrue(search(index, null, "de").isEmpty());
+        assertEquals(Collections.singletonList("/content/site/de"), search(index, "/content/site", "de"));
+        assertEquals(Arrays.asList("/content/de", "/content/site/de"), search(index, "/", "de"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        PathNameIndex index = index("/Content/MyPage");
+
+        assertEquals(Collections.singletonList("/Content/MyPage"), search(index, null, "MYPAGE"));
+        assertEquals(Collections.singletonList("/Content/MyPage"), search(index, "/Content", "mypage"));
+    }
+
+    @Test
+    public void limitsNumberOfResults() {
+        PathNameIndex index = index("/content/page", "/content/pages", "/content/subpage");
+
+        assertEquals(Collections.singletonList("/content/page"), index.search(Collections.singletonList("page"), null, 1));
+        assertTrue(index.search(Collections.singletonList("page"), null, 0).isEmpty());
+    }
+
+    @Test
+    public void removesSubtree() {
+        PathNameIndex index = index("/content/site/home", "/content/site/about", "/content/other");
+
+        index.remove("/content/site");
+
+        assertEquals(2, index.getSize());
+        assertTrue(search(index, null, "home").isEmpty());
+        assertTrue(search(index, "/content/site", "home").isEmpty());
+        assertEquals(Collections.singletonList("/content/other"), search(index, null, "other"));
+    }
+
+    @Test
+    public void findsMovedPathAtNewLocationOnly() {
+        PathNameIndex index = index("/content/old/target", "/content/new");
+
+        index.remove("/content/old/target");
+        index.add("/content/new/target");
+
+        assertEquals(Collections.singletonList("/content/new/target"), search(index, null, "target"));
+
+        index.remove("/content/new/target");
+        index.add("/content/old/target");
+
+        assertEquals(Collections.singletonList("/content/old/target"), search(index, null, "target"));
+        assertEquals(4, index.getSize());
+    }
+
+    @Test
+    public void decodesPostingsWithMultiByteDeltas() {
+        PathNameIndex index = new PathNameIndex();
+        index.add("/target1");
+        addFillers(index, "/fill1", 200);
+        index.add("/target2");
+        addFillers(index, "/fill2", 20_000);
+        index.add("/target3");
+
+        assertEquals(Arrays.asList("/target1", "/target2", "/target3"), search(index, null, "target"));
+    }
+
+    @Test
+    public void compactsIndexAfterManyRemovals() {
+        PathNameIndex index = index("/content/page");
+        addFillers(index, "/removed", 15_000);
+        index.add("/apps/page");
+
+        index.remove("/removed");
+
+        assertEquals(4, index.getSize());
+        assertEquals(Arrays.asList("/content/page", "/apps/page"), search(index, null, "page"));
+        assertTrue(search(index, null, "removed").isEmpty());
+
+        index.add("/content/page/child");
+
+        assertEquals(Collections.singletonList("/content/page/child"), search(index, "/content", "child"));
+        assertEquals(5, index.getSize());
+    }
+
+    @Test
+    public void clearsIndexWhenRootIsRemoved() {
+        PathNameIndex index = index("/content/page", "/apps/page");
+
+        index.remove("/");
+
+        assertEquals(0, index.getSize());
+        assertTrue(search(index, null, "page").isEmpty());
+    }
+
+    @Test
+    public void countsAncestorsOnce() {
+        PathNameIndex index = index("/content/site/home", "/content/site/about", "//content//site/");
+
+        assertEquals(4, index.getSize());
+    }
+
+    private static PathNameIndex index(String... paths) {
+        PathNameIndex index = new PathNameIndex();
+        for (String path : paths) {
+            index.add(path);
+        }
+        return index;
+    }
+
+    private static void addFillers(PathNameIndex index, String parent, int count) {
+        for (int i = 0; i < count; i++) {
+            index.add(parent + "/f" + i);
+        }
+    }
+
+    private static List<String> search(PathNameIndex index, String scopePath, String... terms) {
+        return index.search(Arrays.asList(terms), scopePath, 100);
+    }
+
+}
@@ -0,0 +1,80 @@
+package pl.ds.websight.resourcebrowser.resourceprovider;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceProviderRootTrieTest {
+
+    private static final Function<String, String> ROOT = root -> root;
+
+    @Test
+    public void returnsCoveringProvidersDeepestFirst() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(Arrays.asList("/", "/apps", "/apps/websight"), ROOT);
+
+        assertEquals(Arrays.asList("/apps/websight", "/apps", "/"), trie.getProvidersForPath("/apps/websight/components"));
+        assertEquals(Arrays.asList("/apps", "/"), trie.getProvidersForPath("/apps/other"));
+        assertEquals(Collections.singletonList("/"), trie.getProvidersForPath("/content"));
+        assertEquals(Collections.singletonList("/"), trie.getProvidersForPath("/"));
+    }
+
+    @Test
+    public void returnsProvidersMountedAtTheSameRootInBuildOrder() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(Arrays.asList("/libs", "/libs/"), ROOT);
+
+        assertEquals(Arrays.asList("/libs", "/libs/"), trie.getProvidersForPath("/libs/sling"));
+    }
+
+    @Test
+    public void doesNotMatchRootsByNamePrefix() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(Arrays.asList("/apps/websight-any"), ROOT);
+
+        assertTrue(trie.getProvidersForPath("/apps/websight").isEmpty());
+        assertTrue(trie.getProvidersBelowPath("/apps/websight").isEmpty());
+    }
+
+    @Test
+    public void returnsProvidersStrictlyBelowPathInBuildOrder() {
+        List<String> providers = Arrays.asList("/apps/b", "/apps", "/apps/a/deep", "/content");
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(providers, ROOT);
+
+        assertEquals(Arrays.asList("/apps/b", "/apps/a/deep"), trie.getProvidersBelowPath("/apps"));
+        assertEquals(providers, trie.getProvidersBelowPath("/"));
+        assertTrue(trie.getProvidersBelowPath("/apps/b").isEmpty());
+        assertTrue(trie.getProvidersBelowPath("/missing").isEmpty());
+        assertTrue(trie.hasProvidersBelowPath("/apps/a"));
+        assertFalse(trie.hasProvidersBelowPath("/content"));
+    }
+
+    @Test
+    public void ignoresRedundantSlashes() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(Arrays.asList("/apps/"), ROOT);
+
+        assertEquals(Collections.singletonList("/apps/"), trie.getProvidersForPath("//apps//websight/"));
+        assertEquals(Collections.singletonList("/apps/"), trie.getProvidersBelowPath("/"));
+    }
+
+    @Test
+    public void skipsProvidersWithoutRoot() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.build(Arrays.asList("/apps", "none"),
+                provider -> provider.startsWith("/") ? provider : null);
+
+        assertEquals(Collections.singletonList("/apps"), trie.getProvidersBelowPath("/"));
+    }
+
+    @Test
+    public void emptyTrieHasNoProviders() {
+        ResourceProviderRootTrie<String> trie = ResourceProviderRootTrie.empty();
+
+        assertTrue(trie.getProvidersForPath("/apps").isEmpty());
+        assertTrue(trie.getProvidersBelowPath("/").isEmpty());
+    }
+
+}
@@ -0,0 +1,127 @@
+package pl.ds.websight.resourcebrowser.rest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangeTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void parsesClosedRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-499", LENGTH);
+
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 0, 499);
+        assertEquals(500, ranges.get(0).getLength());
+        assertEquals("bytes 0-499/1000", ranges.get(0).toContentRange(LENGTH));
+    }
+
+    @Test
+    public void parsesOpenRangeUpToTheEnd() {
+        assertRange(ByteRange.parse("bytes=900-", LENGTH).get(0), 900, 999);
+    }
+
+    @Test
+    public void limitsLastPositionToTheContent() {
+        assertRange(ByteRange.parse("bytes=900-5000", LENGTH).get(0), 900, 999);
+    }
+
+    @Test
+    public void parsesSuffixRange() {
+        assertRange(ByteRange.parse("bytes=-300", LENGTH).get(0), 700, 999);
+    }
+
+    @Test
+    public void limitsSuffixRangeToTheContent() {
+        assertRange(ByteRange.parse("bytes=-2000", LENGTH).get(0), 0, 999);
+    }
+
+    @Test
+    public void returnsNoRangesWhenNoneCanBeSatisfied() {
+        assertTrue(ByteRange.parse("bytes=1000-", LENGTH).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", LENGTH).isEmpty());
+    }
+
+    @Test
+    public void returnsNoRangesOfEmptyContent() {
+        assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-5", 0).isEmpty());
+    }
+
+    @Test
+    public void skipsRangesWhichCannotBeSatisfied() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9,2000-3000", LENGTH);
+
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 0, 9);
+    }
+
+    @Test
+    public void sortsRanges() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-599, 0-9 ,-100", LENGTH);
+
+        assertEquals(3, ranges.size());
+        assertRange(ranges.get(0), 0, 9);
+        assertRange(ranges.get(1), 500, 599);
+        assertRange(ranges.get(2), 900, 999);
+    }
+
+    @Test
+    public void acceptsAdjacentRanges() {
+        assertEquals(2, ByteRange.parse("bytes=0-9,10-19", LENGTH).size());
+    }
+
+    @Test
+    public void ignoresOverlappingRanges() {
+        assertNull(ByteRange.parse("bytes=0-10,5-20", LENGTH));
+        assertNull(ByteRange.parse("bytes=900-,-200", LENGTH));
+    }
+
+    @Test
+    public void ignoresTooManyRanges() {
+        assertEquals(20, ByteRange.parse("bytes=" + specs(20), LENGTH).size());
+        assertNull(ByteRange.parse("bytes=" + specs(21), LENGTH));
+    }
+
+    @Test
+    public void ignoresInvalidHeaders() {
+        assertNull(ByteRange.parse(null, LENGTH));
+        assertNull(ByteRange.parse("items=0-9", LENGTH));
+        assertNull(ByteRange.parse("bytes=", LENGTH));
+        assertNull(ByteRange.parse("bytes=-", LENGTH));
+        assertNull(ByteRange.parse("bytes=10", LENGTH));
+        assertNull(ByteRange.parse("bytes=a-9", LENGTH));
+        assertNull(ByteRange.parse("bytes=+1-9", LENGTH));
+        assertNull(ByteRange.parse("bytes=9-1", LENGTH));
+    }
+
+    @Test
+    public void ignoresPositionsTooLargeForLong() {
+        assertNull(ByteRange.parse("bytes=99999999999999999999-", LENGTH));
+        assertNull(ByteRange.parse("bytes=0-99999999999999999999", LENGTH));
+        assertNull(ByteRange.parse("bytes=-99999999999999999999", LENGTH));
+    }
+
+    private static String specs(int count) {
+        StringBuilder specs = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                specs.append(',');
+            }
+            specs.append(i * 10).append('-').append(i * 10 + 4);
+        }
+        return specs.toString();
+    }
+
+    private static void assertRange(ByteRange range, long start, long end) {
+        assertEquals(start, range.getStart());
+        assertEquals(end, range.getEnd());
+    }
+
+}
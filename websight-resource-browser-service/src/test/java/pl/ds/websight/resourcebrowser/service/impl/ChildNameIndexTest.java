@@ -0,0 +1,60 @@
+package pl.ds.websight.resourcebrowser.service.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChildNameIndexTest {
+
+    @Test
+    public void findsNamesWithPrefixInLexicalOrder() {
+        ChildNameIndex index = ChildNameIndex.of(Collections.singletonList(Arrays.asList("content", "apps", "conf", "libs")));
+
+        assertEquals(Arrays.asList("conf", "content"), index.findByPrefix("con", 10));
+    }
+
+    @Test
+    public void mergesRunsOfSeveralProviders() {
+        ChildNameIndex index = ChildNameIndex.of(Arrays.asList(
+                Arrays.asList("b1", "a2", "c1"),
+                Arrays.asList("a1", "b2"),
+                Collections.emptyList()));
+
+        assertEquals(Arrays.asList("a1", "a2", "b1", "b2", "c1"), index.findByPrefix("", 10));
+    }
+
+    @Test
+    public void returnsNamesServedBySeveralProvidersOnce() {
+        ChildNameIndex index = ChildNameIndex.of(Arrays.asList(
+                Arrays.asList("apps", "apps-extra", "libs"),
+                Arrays.asList("apps", "libs"),
+                Arrays.asList("apps")));
+
+        assertEquals(Arrays.asList("apps", "apps-extra"), index.findByPrefix("app", 10));
+        assertEquals(Arrays.asList("apps", "apps-extra", "libs"), index.findByPrefix("", 10));
+    }
+
+    @Test
+    public void limitsNumberOfNames() {
+        ChildNameIndex index = ChildNameIndex.of(Arrays.asList(
+                Arrays.asList("page1", "page3", "page5"),
+                Arrays.asList("page2", "page4", "page1")));
+
+        assertEquals(Arrays.asList("page1", "page2", "page3"), index.findByPrefix("page", 3));
+    }
+
+    @Test
+    public void returnsNoNamesWithoutMatch() {
+        ChildNameIndex index = ChildNameIndex.of(Collections.singletonList(Arrays.asList("apps", "libs")));
+
+        List<String> names = index.findByPrefix("content", 10);
+
+        assertTrue(names.isEmpty());
+    }
+
+}
@@ -1,4 +1,5 @@
 import React from 'react';
+import { Checkbox } from '@atlaskit/checkbox';
 import TextField from '@atlaskit/textfield';
 import Tooltip from '@atlaskit/tooltip';
 import styled from 'styled-components';
@@ -9,13 +10,17 @@ import { debounce } from 'websight-admin/Utils';
 import { LoadingWrapper } from 'websight-admin/Wrappers';
 import { ResourceIcon } from 'websight-admin/Icons';
 
-import ResourceService from '../services/ResourceService.js';
+import ResourceService, { QUICK_SEARCH_CONTENT_MODE, QUICK_SEARCH_PATH_MODE } from '../services/ResourceService.js';
 import ResourceProviderDotMarkerContainer from '../utils/ResourceProviderDotMarkerContainer.js'
 
 const ARROW_UP_KEY = 'ArrowUp';
 const ARROW_DOWN_KEY = 'ArrowDown';
 const ENTER_KEY = 'Enter';
 const QUICK_SEARCH_SELECTED_ROW_CLASS = 'quick-search-selected';
+const LOAD_MORE_SCROLL_THRESHOLD = 50;
+
+// identifies searches of this page, so that the server can cancel a search superseded by a newer one
+const SEARCH_CLIENT_ID = Math.random().toString(36).substring(2);
 
 const SearchContainer = styled.div`
     margin-top: 10px;
@@ -32,6 +37,11 @@ const SearchFieldContainer = styled.div`
     }
 `;
 
+const ScopeFieldContainer = styled.div`
+    margin-left: 10px;
+    width: 250px;
+`;
+
 const SearchResultsContainer = styled.div`
     width: 100%;
     height: calc(100% - 52px);
@@ -76,6 +86,20 @@ const SearchResultRowContainer = styled.div`
     }
 `;
 
+const ResourceMatchContainer = styled.div`
+    display: flex;
+    flex-direction: column;
+`;
+
+const MatchedPropertyContainer = styled.div`
+    color: ${colors.darkGrey};
+    margin-top: 2px;
+
+    && span {
+        color: ${colors.darkGrey};
+    }
+`;
+
 const NoResultsContainer = styled.div`
     display: flex;
     align-items: center;
@@ -101,7 +125,10 @@ export default class ResourceQuickSearch extends React.Component {
         super(props);
 
         this.requestResourceSearch = this.requestResourceSearch.bind(this);
+        this.requestMoreResources = this.requestMoreResources.bind(this);
+        this.onResultsScroll = this.onResultsScroll.bind(this);
         this.resourcePathRender = this.resourcePathRender.bind(this);
+        this.matchedPropertiesRender = this.matchedPropertiesRender.bind(this);
         this.foundResourceRender = this.foundResourceRender.bind(this);
         this.scrollToResourceRow = this.scrollToResourceRow.bind(this);
         this.setQuickSearchProps = this.setQuickSearchProps.bind(this);
@@ -120,15 +147,50 @@ export default class ResourceQuickSearch extends React.Component {
         this.props.onQuickSearchChange({ ...quickSearch, ...props }, callback);
     }
 
+    getSearchOptions() {
+        const { searchMode, searchScope } = this.props.quickSearch;
+        return { mode: searchMode || QUICK_SEARCH_PATH_MODE, scope: searchScope, clientId: SEARCH_CLIENT_ID };
+    }
+
     requestResourceSearch(value) {
-        ResourceService.findResources(value, this.props.selectedProviders, (resources, data) => {
+        ResourceService.findResources(value, this.props.selectedProviders, (resources, data, nextCursor) => {
+            if (this.props.quickSearch.searchValue !== value) {
+                return;
+            }
             this.setQuickSearchProps({
                 foundResources: resources,
-                warnings: Object.values(data).map(provider => provider.warning),
+                warnings: Object.values(data).map(provider => provider.warning).filter(warning => warning),
                 selectedResourceIndex: 0,
+                nextCursor: nextCursor,
                 isLoading: false
             })
-        }, () => this.setQuickSearchProps({ foundResources: [], isLoading: false }));
+        }, () => this.setQuickSearchProps({ foundResources: [], nextCursor: null, isLoading: false }), this.getSearchOptions());
+    }
+
+    requestMoreResources() {
+        const { searchValue, nextCursor, isLoading, isLoadingMore } = this.props.quickSearch;
+        if (!nextCursor || isLoading || isLoadingMore) {
+            return;
+        }
+        this.setQuickSearchProps({ isLoadingMore: true });
+        ResourceService.findResources(searchValue, this.props.selectedProviders, (resources, data, moreCursor) => {
+            const { quickSearch } = this.props;
+            if (quickSearch.searchValue !== searchValue) {
+                return;
+            }
+            this.setQuickSearchProps({
+                foundResources: [...quickSearch.foundResources, ...resources],
+                nextCursor: moreCursor,
+                isLoadingMore: false
+            })
+        }, () => this.setQuickSearchProps({ isLoadingMore: false }), { ...this.getSearchOptions(), cursor: nextCursor });
+    }
+
+    onResultsScroll(event) {
+        const { scrollTop, clientHeight, scrollHeight } = event.target;
+        if (scrollTop + clientHeight >= scrollHeight - LOAD_MORE_SCROLL_THRESHOLD) {
+            this.requestMoreResources();
+        }
     }
 
     openResource(index = this.props.quickSearch.selectedResourceIndex) {
@@ -148,10 +210,19 @@ export default class ResourceQuickSearch extends React.Component {
     }
 
     onFieldChange(value) {
-        this.setQuickSearchProps({ searchValue: value, isLoading: true });
+        this.setQuickSearchProps({ searchValue: value, nextCursor: null, isLoadingMore: false, isLoading: true });
         this.debounceTimerId = debounce(() => this.requestResourceSearch(value), this.debounceTimerId);
     }
 
+    onSearchModeChange(isContentMode) {
+        const searchMode = isContentMode ? QUICK_SEARCH_CONTENT_MODE : QUICK_SEARCH_PATH_MODE;
+        this.setQuickSearchProps({ searchMode: searchMode }, () => this.onFieldChange(this.props.quickSearch.searchValue));
+    }
+
+    onSearchScopeChange(searchScope) {
+        this.setQuickSearchProps({ searchScope: searchScope }, () => this.onFieldChange(this.props.quickSearch.searchValue));
+    }
+
     onFieldKeyDown(key, event) {
         const { selectedResourceIndex, foundResources } = this.props.quickSearch
         switch(key) {
@@ -219,6 +290,39 @@ export default class ResourceQuickSearch extends React.Component {
         )
     }
 
+    matchedPropertiesRender(matchedProperties) {
+        const terms = this.props.quickSearch.searchValue
+            .toLowerCase()
+            .split(/\s+/)
+            .filter(term => term);
+
+        return Object.entries(matchedProperties).map(([name, value]) => {
+            const parts = [];
+            let startIndex = 0;
+            const lowerCaseValue = value.toLowerCase();
+            while (startIndex < value.length) {
+                const matches = terms
+                    .map(term => ({ begin: lowerCaseValue.indexOf(term, startIndex), term: term }))
+                    .filter(match => match.begin >= 0)
+                    .sort((first, second) => first.begin - second.begin);
+                if (!matches.length) {
+                    break;
+                }
+                const { begin, term } = matches[0];
+                parts.push(<span key={`text-${startIndex}`}>{value.substring(startIndex, begin)}</span>);
+                parts.push(<mark key={`match-${begin}`}>{value.substring(begin, begin + term.length)}</mark>);
+                startIndex = begin + term.length;
+            }
+            parts.push(<span key={`text-${startIndex}`}>{value.substring(startIndex)}</span>);
+
+            return (
+                <MatchedPropertyContainer key={name}>
+                    <b>{name}</b>: {parts}
+                </MatchedPropertyContainer>
+            )
+        })
+    }
+
     foundResourceRender(resource, index) {
         const { onOpenResourcesEditor } = this.props;
         const { selectedResourceIndex } = this.props.quickSearch;
@@ -230,7 +334,10 @@ export default class ResourceQuickSearch extends React.Component {
             >
                 <i className='material-icons-outlined chevron'>chevron_right</i>
                 <ResourceIcon isFolder={resource.hasChildren}/>
-                {this.resourcePathRender(resource.path)}
+                <ResourceMatchContainer>
+                    {this.resourcePathRender(resource.path)}
+                    {resource.matchedProperties && this.matchedPropertiesRender(resource.matchedProperties)}
+                </ResourceMatchContainer>
                 {resource.providers.map(provider => (
                     <ResourceProviderDotMarkerContainer key={provider.value} style={{ background: provider.color }}>
                         {provider.label}
@@ -302,16 +409,30 @@ export default class ResourceQuickSearch extends React.Component {
                         elemAfterInput={(
                             <ClearButton
                                 onClick={() =>
-                                    this.setQuickSearchProps({ searchValue: '', foundResources: [] })
+                                    this.setQuickSearchProps({ searchValue: '', foundResources: [], nextCursor: null })
                                 }
                                 isVisible={searchValue}
                             />
                         )}
                         value={searchValue}
                     />
+                    <ScopeFieldContainer>
+                        <TextField
+                            isCompact
+                            placeholder="Search under path, e.g. /content"
+                            autocomplete='off'
+                            onChange={event => this.onSearchScopeChange(event.target.value)}
+                            value={this.props.quickSearch.searchScope || ''}
+                        />
+                    </ScopeFieldContainer>
+                    <Checkbox
+                        label='Search in content'
+                        isChecked={this.getSearchOptions().mode === QUICK_SEARCH_CONTENT_MODE}
+                        onChange={(event) => this.onSearchModeChange(event.target.checked)}
+                    />
                     {this.warningMessagesRender(warnings)}
                 </SearchFieldContainer>
-                <SearchResultsContainer className="results" {...keyEventHandlers} tabIndex={0}>
+                <SearchResultsContainer className="results" {...keyEventHandlers} onScroll={this.onResultsScroll} tabIndex={0}>
                     <LoadingWrapper isLoading={isLoading} spinnerStyle={{ top: '15vh', bottom: 'auto' }} showSpinner={true}>
                         {foundResources.map(this.foundResourceRender)}
                     </LoadingWrapper>
@@ -51,6 +51,7 @@ export default class ResourcesNavigation extends React.Component {
         this.focusOnTreeContainer = this.focusOnTreeContainer.bind(this);
         this.onResourceSelect = this.onResourceSelect.bind(this);
         this.onResourceExpand = this.onResourceExpand.bind(this);
+        this.onLoadMore = this.onLoadMore.bind(this);
         this.localOnTreeMutation = this.localOnTreeMutation.bind(this);
         this.onTreeContainerKeyDown = this.onTreeContainerKeyDown.bind(this);
     }
@@ -127,6 +128,29 @@ export default class ResourcesNavigation extends React.Component {
         }
     }
 
+    onLoadMore(loadMoreItem) {
+        const { selectedProviders, onNewResources, tree } = this.props;
+        const parent = tree.items[loadMoreItem.parentId];
+
+        if (!parent || loadMoreItem.isLoading) {
+            return;
+        }
+        loadMoreItem.isLoading = true;
+        ResourceService.listResources(
+            { path: parent.path, cursor: loadMoreItem.cursor, providers: selectedProviders },
+            (resources) => {
+                const loadedParent = resources.find(({ id }) => id === parent.id);
+                if (loadedParent) {
+                    loadedParent.children = [
+                        ...tree.items[parent.id].children.filter(child => child !== loadMoreItem.id),
+                        ...loadedParent.children
+                    ];
+                }
+                onNewResources(resources, false);
+            }
+        )
+    }
+
     onTreeContainerKeyDown(event) {
         const isFocused = document.activeElement.className === BROWSER_TREE_MENU_CONTAINER_CLASS;
         if (!isFocused) {
@@ -140,7 +164,7 @@ export default class ResourcesNavigation extends React.Component {
 
             const populateNodes = (items) => {
                 items.forEach((item) => {
-                    if (item.path && !nodes.includes(item.path)) {
+                    if (item.path && !item.isLoadMore && !nodes.includes(item.path)) {
                         nodes.push(item.path);
                     }
                     if (item.hasChildren && item.children.length) {
@@ -313,6 +337,7 @@ export default class ResourcesNavigation extends React.Component {
                         onSelect={this.onResourceSelect}
                         onTreeMutation={this.localOnTreeMutation}
                         onExpand={this.onResourceExpand}
+                        onLoadMore={this.onLoadMore}
                         onOpenResourcesEditor={onOpenResourcesEditor}
                         onTreeRefresh={onTreeRefresh}
                         loadingResources={loadingResources}
@@ -0,0 +1,60 @@
+import React from 'react';
+import Spinner from '@atlaskit/spinner';
+import styled from 'styled-components';
+
+import { colors } from 'websight-admin/theme';
+
+const LoadMoreContainer = styled.div`
+    align-items: center;
+    color: ${colors.darkGrey};
+    cursor: pointer;
+    display: flex;
+    font-size: 12px;
+    margin-left: 30px;
+    min-height: 24px;
+
+    span {
+        margin-left: 6px;
+    }
+`;
+
+export default class LoadMoreTreeNode extends React.Component {
+    constructor(props) {
+        super(props);
+
+        this.loadMore = this.loadMore.bind(this);
+    }
+
+    componentDidMount() {
+        if (window.IntersectionObserver) {
+            this.observer = new IntersectionObserver((entries) => {
+                if (entries.some(entry => entry.isIntersecting)) {
+                    this.loadMore();
+                }
+            });
+            this.observer.observe(this.element);
+        }
+    }
+
+    componentWillUnmount() {
+        if (this.observer) {
+            this.observer.disconnect();
+        }
+    }
+
+    loadMore() {
+        const { onLoadMore, resource } = this.props;
+        onLoadMore && onLoadMore(resource);
+    }
+
+    render() {
+        const { resource } = this.props;
+
+        return (
+            <LoadMoreContainer ref={element => this.element = element} onClick={this.loadMore}>
+                {resource.isLoading && <Spinner size={16} />}
+                <span>{resource.name}</span>
+            </LoadMoreContainer>
+        );
+    }
+}
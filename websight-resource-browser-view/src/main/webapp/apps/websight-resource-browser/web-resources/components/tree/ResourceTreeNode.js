@@ -9,6 +9,7 @@ import styled from 'styled-components';
 import { colors } from 'websight-admin/theme';
 import { ResourceIcon } from 'websight-admin/Icons';
 
+import LoadMoreTreeNode from './LoadMoreTreeNode.js';
 import ResourceOperationsMenu from './ResourceOperationsMenu.js';
 import ChangelogReadService from '../../services/ChangelogReadService.js';
 import ChangelogWriteService from '../../services/ChangelogWriteService.js';
@@ -283,6 +284,10 @@ export default class ResourceTreeNode extends React.Component {
     }
 
     render() {
+        if (this.props.resource.isLoadMore) {
+            return <LoadMoreTreeNode resource={this.props.resource} onLoadMore={this.props.onLoadMore} />;
+        }
+
         const { editing } = this.state;
         const { changelog, onChangelogUpdate, onCreateResource, resource, selectedResource, loadingResources,
             onTreeRefresh, onCopyMoveResource, tree, errorMessage, dragging, extraActions } = this.props;
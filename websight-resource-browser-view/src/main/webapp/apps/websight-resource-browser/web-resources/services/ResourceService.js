@@ -4,6 +4,12 @@ import { mapProvidersData } from '../utils/ResourceBrowserUtil.js';
 
 export const ROOT_PATH = '/';
 export const VIRTUAL_ROOT_PATH = 'root';
+export const CHILDREN_PAGE_SIZE = 500;
+export const QUICK_SEARCH_PAGE_SIZE = 50;
+export const QUICK_SEARCH_PATH_MODE = 'path';
+export const QUICK_SEARCH_CONTENT_MODE = 'content';
+
+const LOAD_MORE_ID_SUFFIX = '#load-more';
 
 const expandIfRoot = (resource) => ({
     ...resource,
@@ -25,11 +31,29 @@ const mapResourceData = (resource, allProviders) => ({
     orderable: resource.orderable || false,
     children: resource.children || [],
     isFolder: resource.hasChildren || false,
+    isLoading: false,
+    nextCursor: resource.nextCursor,
+    matchedProperties: resource.matchedProperties
+});
+
+const loadMoreItem = (resource) => ({
+    id: resource.path + LOAD_MORE_ID_SUFFIX,
+    name: 'Load more...',
+    path: resource.path + LOAD_MORE_ID_SUFFIX,
+    parentId: resource.path,
+    cursor: resource.nextCursor,
+    isLoadMore: true,
+    notDraggable: true,
+    providers: [],
+    hasContent: false,
+    hasChildren: false,
+    children: [],
+    isFolder: false,
     isLoading: false
 });
 
 const listRequestParameters = (parameters) => {
-    const { path, paths, providers } = parameters;
+    const { path, paths, providers, cursor } = parameters;
     const pathsExceptVirtualRoot = (paths || [])
         .filter(pathString => pathString !== VIRTUAL_ROOT_PATH);
 
@@ -45,7 +69,9 @@ const listRequestParameters = (parameters) => {
 
     return {
         paths: preparePaths(),
-        providers: providers.map((provider) => provider.value)
+        providers: providers.map((provider) => provider.value),
+        limit: CHILDREN_PAGE_SIZE,
+        ...(cursor ? { cursor: cursor } : {})
     }
 };
 
@@ -67,6 +93,11 @@ const listResourceResponseData = (resourcesArray, allProviders) => {
                 newItems.push(mapResourceData(child, allProviders));
                 return child.path;
             });
+        if (resource.nextCursor) {
+            const item = loadMoreItem(resource);
+            newItems.push(item);
+            resource.children.push(item.id);
+        }
 
         let mappedResource = mapResourceData(resource, allProviders);
 
@@ -124,15 +155,19 @@ class ResourceService {
     }
 
     listResources(parameters, onComplete) {
-        this.client.get({
-            action: 'list-resources',
-            parameters: listRequestParameters(parameters),
-            onSuccess: ({ entity }) => onComplete(listResourceResponseData(entity, this.providers)),
-            onValidationFailure: () => onComplete([]),
-            onFailure: () => onComplete([]),
-            onError: () => onComplete([]),
-            onNonFrameworkError: () => onComplete([])
+        const fetchParams = this.client.buildGetFetchParameters({
+            action: 'stream-resources',
+            parameters: listRequestParameters(parameters)
         });
+        fetch(fetchParams.url, fetchParams.options)
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error(`Could not list resources, status: ${response.status}`);
+                }
+                return response.json();
+            })
+            .then(resources => onComplete(listResourceResponseData(resources, this.providers)))
+            .catch(() => onComplete([]));
     }
 
     getResourceContentData(parameters, onSuccess) {
@@ -198,19 +233,29 @@ class ResourceService {
         })
     }
 
-    findResources(phrase, selectedProviders, onSuccess, onComplete) {
-        this.client.get({
-            action: 'quick-search',
+    findResources(phrase, selectedProviders, onSuccess, onComplete, { cursor, mode, scope, clientId } = {}) {
+        const fetchParams = this.client.buildGetFetchParameters({
+            action: 'stream-quick-search',
             parameters: {
                 phrase: phrase,
-                providers: selectedProviders.map((provider) => provider.value)
-            },
-            onSuccess: ({ entity }) => onSuccess(listResourceResponseData(entity.results || [], this.providers), entity.data || {}),
-            onValidationFailure: () => onComplete(),
-            onFailure: () => onComplete(),
-            onError: () => onComplete(),
-            onNonFrameworkError: () => onComplete()
+                mode: mode || QUICK_SEARCH_PATH_MODE,
+                providers: selectedProviders.map((provider) => provider.value),
+                limit: QUICK_SEARCH_PAGE_SIZE,
+                ...(cursor ? { cursor: cursor } : {}),
+                ...(scope ? { scope: scope } : {}),
+                ...(clientId ? { clientId: clientId } : {})
+            }
         });
+        fetch(fetchParams.url, fetchParams.options)
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error(`Could not find resources, status: ${response.status}`);
+                }
+                return response.json();
+            })
+            .then(entity => onSuccess(listResourceResponseData(entity.results || [], this.providers), entity.data || {},
+                entity.nextCursor))
+            .catch(() => onComplete());
     }
 
 }